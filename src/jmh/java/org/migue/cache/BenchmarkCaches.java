@@ -0,0 +1,27 @@
+package org.migue.cache;
+
+/**
+ * Construye las cachés fuera de CDI para los benchmarks.
+ */
+public final class BenchmarkCaches {
+
+    private BenchmarkCaches() {
+    }
+
+    /**
+     * Caché de resultados desactivada: cada consulta recorre la agregación completa.
+     */
+    public static AggregatedPostsCache passThroughPostsCache() {
+        AggregatedPostsCache cache = new AggregatedPostsCache();
+        cache.enabled = false;
+        return cache;
+    }
+
+    public static UserCache userCache(long maxEntries) {
+        UserCache cache = new UserCache();
+        cache.ttlMs = 600_000;
+        cache.maxEntries = maxEntries;
+        cache.init();
+        return cache;
+    }
+}
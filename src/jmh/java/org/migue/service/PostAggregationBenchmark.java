@@ -0,0 +1,156 @@
+package org.migue.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import org.migue.cache.BenchmarkCaches;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.UserCache;
+import org.migue.dto.PostQuery;
+import org.migue.dto.PostResponse;
+import org.migue.metrics.AggregationMetrics;
+import org.migue.search.AuthorPostIndex;
+import org.migue.search.PostSearchIndex;
+import org.migue.tracing.AggregationTracing;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coste de la agregación de GET /posts sin ruido de red: los clientes REST se sustituyen
+ * por {@link StubUpstream} y las cachés de resultados y la vista materializada quedan
+ * fuera, de modo que cada operación recorre la lista de posts, el reparto de llamadas
+ * de comentarios y autores, la caché de usuarios y el ensamblado de las respuestas.
+ * La pasarela se inicializa como en producción, con el limitador adaptativo. Con
+ * {@code -prof gc} se obtiene además la tasa de asignación por operación.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PostAggregationBenchmark {
+
+    @Param({"100", "1000"})
+    int posts;
+
+    @Param({"5"})
+    int commentsPerPost;
+
+    @Param({"10"})
+    int authors;
+
+    // Latencia simulada de cada llamada externa
+    @Param({"0", "20000"})
+    long latencyMicros;
+
+    @Param({"true", "false"})
+    boolean bulkComments;
+
+    @Param({"true", "false"})
+    boolean batchUsers;
+
+    // Con false la caché de usuarios se vacía antes de cada operación
+    @Param({"true", "false"})
+    boolean warmUserCache;
+
+    // Con false los autores se piden cuando llegan los comentarios, en dos fases
+    @Param({"true", "false"})
+    boolean pipelined;
+
+    private ExecutorService executor;
+    private PostService postService;
+    private UserCache userCache;
+    private PostQuery query;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubUpstream upstream = new StubUpstream(posts, commentsPerPost, authors, latencyMicros);
+        executor = Executors.newFixedThreadPool(64);
+        userCache = BenchmarkCaches.userCache(Math.max(1_000, authors));
+        postService = createPostService(upstream, executor, userCache, posts, bulkComments, batchUsers);
+        postService.pipelinedEnrichment = pipelined;
+        query = new PostQuery(null, null, posts, 0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<PostResponse> aggregatePosts() {
+        if (!warmUserCache) {
+            userCache.invalidateAll();
+        }
+        return postService.getPosts(query);
+    }
+
+    /**
+     * PostService sobre {@code upstream} con la configuración por defecto de producción:
+     * la pasarela se inicializa como lo haría CDI, con el limitador adaptativo, las
+     * métricas y las trazas del executor.
+     */
+    static PostService createPostService(StubUpstream upstream, ExecutorService executor, UserCache userCache,
+                                         int maxPosts, boolean bulkComments, boolean batchUsers) {
+        AggregationMetrics metrics = new AggregationMetrics(new SimpleMeterRegistry());
+        AggregationTracing tracing = new AggregationTracing(OpenTelemetry.noop().getTracer("benchmark"));
+
+        UpstreamGateway gateway = new UpstreamGateway();
+        gateway.postClient = upstream.postClient();
+        gateway.commentClient = upstream.commentClient();
+        gateway.userClient = upstream.userClient();
+        gateway.executor = executor;
+        gateway.mode = AggregationMode.WORKER;
+        gateway.externalTimeoutMs = 30_000;
+        // El servicio simulado responde siempre 200, así que If-None-Match no aporta nada
+        gateway.conditionalRequests = false;
+        gateway.limiterEnabled = true;
+        gateway.limiterInitialLimit = 20;
+        gateway.limiterMinLimit = 2;
+        gateway.limiterMaxLimit = 200;
+        gateway.limiterMaxQueue = 1000;
+        gateway.limiterBackoffRatio = 0.9;
+        gateway.limiterLatencyTolerance = 2.0;
+        gateway.hedgingEnabled = false;
+        gateway.metrics = metrics;
+        gateway.tracing = tracing;
+        gateway.init();
+
+        PostService postService = new PostService();
+        postService.gateway = gateway;
+        postService.executor = executor;
+        postService.userCache = userCache;
+        postService.postsCache = BenchmarkCaches.passThroughPostsCache();
+        postService.postsView = new MaterializedPostsView();
+        postService.searchIndex = new PostSearchIndex();
+        postService.authorIndex = new AuthorPostIndex();
+        postService.metrics = metrics;
+        postService.tracing = tracing;
+        postService.externalTimeoutMs = 30_000;
+        postService.maxPostsLimit = maxPosts;
+        postService.bulkCommentsEnabled = bulkComments;
+        postService.bulkMaxFilterIds = 50;
+        postService.batchUsersEnabled = batchUsers;
+        postService.userBatchSize = 25;
+        postService.fetchAllUsers = false;
+        postService.streamMaxConcurrency = 16;
+        postService.pipelinedEnrichment = true;
+        return postService;
+    }
+}
@@ -0,0 +1,68 @@
+package org.migue.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.migue.cache.BenchmarkCaches;
+import org.migue.dto.PostQuery;
+import org.migue.dto.PostResponse;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialización Jackson de una página ya agregada, como la hace la primera petición sin
+ * caché. Va aparte de {@link PostAggregationBenchmark} porque los modos de carga de
+ * comentarios y autores no cambian la página resultante.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResponseSerializationBenchmark {
+
+    @Param({"100", "1000"})
+    int posts;
+
+    @Param({"5"})
+    int commentsPerPost;
+
+    @Param({"10"})
+    int authors;
+
+    private ObjectMapper mapper;
+    private List<PostResponse> responses;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        StubUpstream upstream = new StubUpstream(posts, commentsPerPost, authors, 0);
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        try {
+            PostService postService = PostAggregationBenchmark.createPostService(upstream, executor,
+                    BenchmarkCaches.userCache(Math.max(1_000, authors)), posts, true, true);
+            responses = postService.getPosts(new PostQuery(null, null, posts, 0));
+        } finally {
+            executor.shutdownNow();
+        }
+        mapper = new ObjectMapper();
+    }
+
+    @Benchmark
+    public byte[] serializeResponses() throws Exception {
+        return mapper.writeValueAsBytes(responses);
+    }
+}
@@ -0,0 +1,169 @@
+package org.migue.service;
+
+import jakarta.ws.rs.core.Response;
+import org.migue.client.CommentClient;
+import org.migue.client.PostClient;
+import org.migue.client.UserClient;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostDto;
+import org.migue.dto.UserDto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Servicio externo simulado en memoria con las mismas formas de respuesta que
+ * JSONPlaceholder: {@code posts} posts repartidos entre {@code authors} autores, con
+ * {@code commentsPerPost} comentarios cada uno. Cada llamada espera {@code latencyMicros}
+ * antes de responder y se cuenta por cliente.
+ */
+public class StubUpstream {
+
+    private final List<PostDto> posts;
+    private final Map<Long, List<CommentDto>> commentsByPost;
+    private final Map<Long, UserDto> users;
+    private final long latencyNanos;
+
+    private final LongAdder postCalls = new LongAdder();
+    private final LongAdder commentCalls = new LongAdder();
+    private final LongAdder userCalls = new LongAdder();
+
+    public StubUpstream(int posts, int commentsPerPost, int authors, long latencyMicros) {
+        this.posts = new ArrayList<>(posts);
+        this.commentsByPost = new HashMap<>();
+        this.users = new HashMap<>();
+        this.latencyNanos = TimeUnit.MICROSECONDS.toNanos(latencyMicros);
+
+        for (long userId = 1; userId <= authors; userId++) {
+            users.put(userId, user(userId));
+        }
+        long commentId = 1;
+        for (long postId = 1; postId <= posts; postId++) {
+            PostDto post = new PostDto();
+            post.id = postId;
+            post.userId = ((postId - 1) % authors) + 1;
+            post.title = "titulo " + postId;
+            post.body = "cuerpo del post " + postId + " con algo de texto para serializar";
+            this.posts.add(post);
+
+            List<CommentDto> comments = new ArrayList<>(commentsPerPost);
+            for (int i = 0; i < commentsPerPost; i++) {
+                CommentDto comment = new CommentDto();
+                comment.id = commentId++;
+                comment.postId = postId;
+                comment.name = "comentario " + comment.id;
+                comment.email = "lector" + comment.id + "@example.com";
+                comment.body = "texto del comentario " + comment.id;
+                comments.add(comment);
+            }
+            commentsByPost.put(postId, comments);
+        }
+    }
+
+    private static UserDto user(long id) {
+        UserDto user = new UserDto();
+        user.id = id;
+        user.name = "Autor " + id;
+        user.username = "autor" + id;
+        user.email = "autor" + id + "@example.com";
+        return user;
+    }
+
+    public PostClient postClient() {
+        return new PostClient() {
+            @Override
+            public List<PostDto> getPosts() {
+                postCalls.increment();
+                pause();
+                return new ArrayList<>(posts);
+            }
+
+            @Override
+            public Response getPostsIfNoneMatch(String etag) {
+                return Response.ok(getPosts()).build();
+            }
+
+            @Override
+            public Response deletePost(Long postId) {
+                pause();
+                return Response.ok().build();
+            }
+        };
+    }
+
+    public CommentClient commentClient() {
+        return new CommentClient() {
+            @Override
+            public List<CommentDto> getComments(Long postId) {
+                commentCalls.increment();
+                pause();
+                return commentsByPost.getOrDefault(postId, Collections.emptyList());
+            }
+
+            @Override
+            public List<CommentDto> getCommentsByPostIds(List<Long> postIds) {
+                commentCalls.increment();
+                pause();
+                List<CommentDto> comments = new ArrayList<>();
+                if (postIds == null) {
+                    commentsByPost.values().forEach(comments::addAll);
+                } else {
+                    postIds.forEach(id -> comments.addAll(commentsByPost.getOrDefault(id, Collections.emptyList())));
+                }
+                return comments;
+            }
+        };
+    }
+
+    public UserClient userClient() {
+        return new UserClient() {
+            @Override
+            public UserDto getUser(Long userId) {
+                userCalls.increment();
+                pause();
+                return users.get(userId);
+            }
+
+            @Override
+            public List<UserDto> getUsers(List<Long> userIds) {
+                userCalls.increment();
+                pause();
+                if (userIds == null) {
+                    return new ArrayList<>(users.values());
+                }
+                List<UserDto> found = new ArrayList<>(userIds.size());
+                userIds.forEach(id -> {
+                    UserDto user = users.get(id);
+                    if (user != null) {
+                        found.add(user);
+                    }
+                });
+                return found;
+            }
+        };
+    }
+
+    private void pause() {
+        if (latencyNanos > 0) {
+            LockSupport.parkNanos(latencyNanos);
+        }
+    }
+
+    public long postCalls() {
+        return postCalls.sum();
+    }
+
+    public long commentCalls() {
+        return commentCalls.sum();
+    }
+
+    public long userCalls() {
+        return userCalls.sum();
+    }
+}
@@ -0,0 +1,153 @@
+package org.migue.loadtest;
+
+import io.quarkus.test.common.WithTestResource;
+import io.quarkus.test.common.http.TestHTTPResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.jboss.logging.Logger;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Prueba de carga de GET /posts contra {@link StubUpstreamServer}, con la agregación real.
+ * Las peticiones se lanzan a ritmo fijo ({@code loadtest.rate} por segundo durante
+ * {@code loadtest.duration-s}) sin esperar a las anteriores, y la latencia se mide desde
+ * el instante en que cada petición debía salir, de modo que los retrasos del propio
+ * generador también cuentan. Se informa de percentiles, throughput y llamadas externas
+ * por petición; {@code loadtest.max-p99-ms} y {@code loadtest.max-error-rate} fijan los
+ * umbrales que hacen fallar la prueba.
+ */
+@QuarkusTest
+@WithTestResource(StubUpstreamResource.class)
+class PostsLoadTest {
+
+    private static final Logger LOG = Logger.getLogger(PostsLoadTest.class);
+
+    @TestHTTPResource("/posts")
+    URI postsUri;
+
+    @Test
+    void getPostsAtFixedArrivalRate() throws Exception {
+        int rate = Integer.getInteger("loadtest.rate", 20);
+        int durationSeconds = Integer.getInteger("loadtest.duration-s", 10);
+        int pageSize = Integer.getInteger("loadtest.page-size", 10);
+        long maxP99Ms = Long.getLong("loadtest.max-p99-ms", 0);
+        double maxErrorRate = Double.parseDouble(System.getProperty("loadtest.max-error-rate", "0.05"));
+        int posts = Integer.getInteger("loadtest.upstream.posts", 100);
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+        // Calentamiento: conexiones abiertas y caché de usuarios cargada
+        client.send(request(pageSize, 0), HttpResponse.BodyHandlers.discarding());
+        Map<String, Long> callsBefore = StubUpstreamResource.server.calls();
+
+        long total = (long) rate * durationSeconds;
+        long periodNanos = TimeUnit.SECONDS.toNanos(1) / rate;
+        long[] latencies = new long[(int) total];
+        LongAdder errors = new LongAdder();
+        Map<Integer, LongAdder> statuses = new HashMap<>();
+        List<CompletableFuture<Void>> inFlight = new ArrayList<>();
+        AtomicLong sent = new AtomicLong();
+
+        long start = System.nanoTime();
+        CompletableFuture<Void> allSent = new CompletableFuture<>();
+        scheduler.scheduleAtFixedRate(() -> {
+            long index = sent.getAndIncrement();
+            if (index >= total) {
+                allSent.complete(null);
+                return;
+            }
+            long intended = start + index * periodNanos;
+            int offset = ThreadLocalRandom.current().nextInt(Math.max(1, posts - pageSize));
+            CompletableFuture<Void> call = client.sendAsync(request(pageSize, offset), HttpResponse.BodyHandlers.discarding())
+                    .handle((response, ex) -> {
+                        latencies[(int) index] = System.nanoTime() - intended;
+                        int status = ex != null ? -1 : response.statusCode();
+                        synchronized (statuses) {
+                            statuses.computeIfAbsent(status, ignored -> new LongAdder()).increment();
+                        }
+                        if (status != 200) {
+                            errors.increment();
+                        }
+                        return null;
+                    });
+            synchronized (inFlight) {
+                inFlight.add(call);
+            }
+        }, 0, periodNanos, TimeUnit.NANOSECONDS);
+
+        allSent.get(durationSeconds + 60L, TimeUnit.SECONDS);
+        scheduler.shutdownNow();
+        synchronized (inFlight) {
+            CompletableFuture.allOf(inFlight.toArray(CompletableFuture[]::new)).get(2, TimeUnit.MINUTES);
+        }
+        double elapsedSeconds = (System.nanoTime() - start) / 1e9;
+
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        double errorRate = (double) errors.sum() / total;
+        long p99Ms = TimeUnit.NANOSECONDS.toMillis(percentile(sorted, 0.99));
+
+        Map<String, Long> callsAfter = StubUpstreamResource.server.calls();
+        StringBuilder upstream = new StringBuilder();
+        callsAfter.forEach((route, count) -> {
+            long during = count - callsBefore.getOrDefault(route, 0L);
+            upstream.append(String.format("%n  %-14s %8d llamadas  %6.2f por petición", route, during, (double) during / total));
+        });
+
+        LOG.infof("%nGET /posts?limit=%d a %d peticiones/s durante %d s%n"
+                        + "  peticiones   %d (%d errores, %.2f %%) códigos %s%n"
+                        + "  throughput   %.1f respuestas/s%n"
+                        + "  latencia ms  p50=%d p90=%d p99=%d p99.9=%d max=%d%n"
+                        + "servicio externo (%d errores inyectados):%s",
+                pageSize, rate, durationSeconds,
+                total, errors.sum(), errorRate * 100, statuses,
+                total / elapsedSeconds,
+                millis(sorted, 0.50), millis(sorted, 0.90), p99Ms, millis(sorted, 0.999), millis(sorted, 1.0),
+                StubUpstreamResource.server.injectedErrors(), upstream);
+
+        assertTrue(errorRate <= maxErrorRate,
+                "Tasa de errores " + errorRate + " por encima de " + maxErrorRate);
+        if (maxP99Ms > 0) {
+            assertTrue(p99Ms <= maxP99Ms, "p99 de " + p99Ms + " ms por encima de " + maxP99Ms + " ms");
+        }
+    }
+
+    private HttpRequest request(int limit, int offset) {
+        return HttpRequest.newBuilder(URI.create(postsUri + "?limit=" + limit + "&offset=" + offset))
+                .timeout(Duration.ofSeconds(30))
+                .GET()
+                .build();
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    private static long millis(long[] sorted, double quantile) {
+        return TimeUnit.NANOSECONDS.toMillis(percentile(sorted, quantile));
+    }
+}
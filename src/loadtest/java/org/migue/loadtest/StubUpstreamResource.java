@@ -0,0 +1,59 @@
+package org.migue.loadtest;
+
+import io.quarkus.test.common.QuarkusTestResourceLifecycleManager;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Arranca {@link StubUpstreamServer} antes que la aplicación y apunta a él los tres
+ * clientes REST. Las cachés de resultados y la vista materializada se desactivan para
+ * que cada petición recorra la agregación completa. El perfil del servicio simulado se
+ * lee de las propiedades de sistema {@code loadtest.upstream.*}.
+ */
+public class StubUpstreamResource implements QuarkusTestResourceLifecycleManager {
+
+    static StubUpstreamServer server;
+
+    @Override
+    public Map<String, String> start() {
+        StubUpstreamServer.Profile profile = new StubUpstreamServer.Profile(
+                Integer.getInteger("loadtest.upstream.posts", 100),
+                Integer.getInteger("loadtest.upstream.comments-per-post", 5),
+                Integer.getInteger("loadtest.upstream.users", 10),
+                doubleProperty("loadtest.upstream.median-ms", 20),
+                doubleProperty("loadtest.upstream.sigma", 0.5),
+                doubleProperty("loadtest.upstream.slow-rate", 0.01),
+                Long.getLong("loadtest.upstream.slow-ms", 500),
+                doubleProperty("loadtest.upstream.error-rate", 0.01));
+        try {
+            server = new StubUpstreamServer(profile);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        String url = server.baseUri().toString();
+        Map<String, String> config = new HashMap<>();
+        config.put("post-api/mp-rest/url", url);
+        config.put("comment-api/mp-rest/url", url);
+        config.put("user-api/mp-rest/url", url);
+        config.put("app.view.enabled", "false");
+        config.put("app.cache.posts.enabled", "false");
+        config.put("app.cache.serialized.enabled", "false");
+        return config;
+    }
+
+    @Override
+    public void stop() {
+        if (server != null) {
+            server.close();
+        }
+    }
+
+    private static double doubleProperty(String name, double defaultValue) {
+        String value = System.getProperty(name);
+        return value != null ? Double.parseDouble(value) : defaultValue;
+    }
+}
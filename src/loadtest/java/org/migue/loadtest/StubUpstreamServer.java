@@ -0,0 +1,220 @@
+package org.migue.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostDto;
+import org.migue.dto.UserDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Servicio externo simulado con las rutas de JSONPlaceholder que usa la agregación:
+ * {@code /posts}, {@code /posts/{id}/comments}, {@code /comments?postId=},
+ * {@code /users/{id}} y {@code /users?id=}. Cada respuesta sufre una latencia log-normal
+ * alrededor de {@link Profile#medianMs()}, con una fracción de respuestas lentas y otra
+ * de errores 500. Las llamadas se cuentan por ruta.
+ */
+public class StubUpstreamServer implements AutoCloseable {
+
+    private static final Pattern POST_COMMENTS = Pattern.compile("^/posts/(\\d+)/comments$");
+    private static final Pattern USER = Pattern.compile("^/users/(\\d+)$");
+
+    private final Profile profile;
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<PostDto> posts = new ArrayList<>();
+    private final Map<Long, List<CommentDto>> commentsByPost = new LinkedHashMap<>();
+    private final Map<Long, UserDto> users = new LinkedHashMap<>();
+    private final Map<String, LongAdder> calls = new ConcurrentHashMap<>();
+    private final LongAdder injectedErrors = new LongAdder();
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    /**
+     * @param medianMs        mediana de la latencia de cada respuesta
+     * @param sigma           dispersión de la log-normal (0 para latencia fija)
+     * @param slowRate        fracción de respuestas a las que se suma {@code slowMs}
+     * @param slowMs          retraso extra de la cola lenta
+     * @param errorRate       fracción de respuestas que devuelven 500
+     */
+    public record Profile(int posts, int commentsPerPost, int users,
+                          double medianMs, double sigma, double slowRate, long slowMs, double errorRate) {
+    }
+
+    public StubUpstreamServer(Profile profile) throws IOException {
+        this.profile = profile;
+        generateData();
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    public URI baseUri() {
+        return URI.create("http://localhost:" + server.getAddress().getPort());
+    }
+
+    private void generateData() {
+        for (long userId = 1; userId <= profile.users(); userId++) {
+            UserDto user = new UserDto();
+            user.id = userId;
+            user.name = "Autor " + userId;
+            user.username = "autor" + userId;
+            user.email = "autor" + userId + "@example.com";
+            users.put(userId, user);
+        }
+        long commentId = 1;
+        for (long postId = 1; postId <= profile.posts(); postId++) {
+            PostDto post = new PostDto();
+            post.id = postId;
+            post.userId = ((postId - 1) % profile.users()) + 1;
+            post.title = "titulo " + postId;
+            post.body = "cuerpo del post " + postId;
+            posts.add(post);
+
+            List<CommentDto> comments = new ArrayList<>();
+            for (int i = 0; i < profile.commentsPerPost(); i++) {
+                CommentDto comment = new CommentDto();
+                comment.id = commentId++;
+                comment.postId = postId;
+                comment.name = "comentario " + comment.id;
+                comment.email = "lector" + comment.id + "@example.com";
+                comment.body = "texto del comentario " + comment.id;
+                comments.add(comment);
+            }
+            commentsByPost.put(postId, comments);
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            Matcher postComments = POST_COMMENTS.matcher(path);
+            Matcher user = USER.matcher(path);
+
+            Object body;
+            String route;
+            if (path.equals("/posts")) {
+                route = "posts";
+                body = posts;
+            } else if (postComments.matches()) {
+                route = "post-comments";
+                body = commentsByPost.getOrDefault(Long.parseLong(postComments.group(1)), Collections.emptyList());
+            } else if (path.equals("/comments")) {
+                route = "comments";
+                body = commentsFor(ids(query, "postId"));
+            } else if (user.matches()) {
+                route = "user";
+                body = users.get(Long.parseLong(user.group(1)));
+            } else if (path.equals("/users")) {
+                route = "users";
+                List<Long> ids = ids(query, "id");
+                body = ids.isEmpty() ? new ArrayList<>(users.values())
+                        : ids.stream().map(users::get).filter(Objects::nonNull).toList();
+            } else {
+                send(exchange, 404, "{}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+
+            calls.computeIfAbsent(route, ignored -> new LongAdder()).increment();
+            pause();
+            if (ThreadLocalRandom.current().nextDouble() < profile.errorRate()) {
+                injectedErrors.increment();
+                send(exchange, 500, "{\"error\":\"fallo inyectado\"}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (body == null) {
+                send(exchange, 404, "{}".getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            send(exchange, 200, mapper.writeValueAsBytes(body));
+        }
+    }
+
+    private List<CommentDto> commentsFor(List<Long> postIds) {
+        List<CommentDto> comments = new ArrayList<>();
+        if (postIds.isEmpty()) {
+            commentsByPost.values().forEach(comments::addAll);
+        } else {
+            postIds.forEach(id -> comments.addAll(commentsByPost.getOrDefault(id, Collections.emptyList())));
+        }
+        return comments;
+    }
+
+    private static List<Long> ids(String query, String name) {
+        if (query == null || query.isEmpty()) {
+            return List.of();
+        }
+        return Arrays.stream(query.split("&"))
+                .map(pair -> pair.split("=", 2))
+                .filter(pair -> pair.length == 2 && pair[0].equals(name))
+                .map(pair -> Long.parseLong(pair[1]))
+                .toList();
+    }
+
+    // Los hilos virtuales hacen barato dormir mientras dura la latencia simulada
+    private void pause() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        double millis = profile.medianMs() * Math.exp(profile.sigma() * random.nextGaussian());
+        if (random.nextDouble() < profile.slowRate()) {
+            millis += profile.slowMs();
+        }
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep((long) millis, (int) ((millis % 1) * 1_000_000));
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    /**
+     * Llamadas recibidas por ruta desde el arranque.
+     */
+    public Map<String, Long> calls() {
+        Map<String, Long> snapshot = new LinkedHashMap<>();
+        calls.forEach((route, count) -> snapshot.put(route, count.sum()));
+        return snapshot;
+    }
+
+    public long injectedErrors() {
+        return injectedErrors.sum();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,171 @@
+package org.migue.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.migue.dto.PartialPosts;
+import org.migue.dto.PostQuery;
+import org.migue.dto.PostResponse;
+import org.migue.resilience.Deadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Caché stale-while-revalidate del resultado agregado de posts.
+ * Dentro de la ventana de frescura se sirve directamente; dentro de la ventana de
+ * obsolescencia se sirve de inmediato y se lanza una única recarga en segundo plano.
+ * Los resultados parciales ({@link PartialPosts}) se devuelven sin guardarse.
+ */
+@ApplicationScoped
+public class AggregatedPostsCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregatedPostsCache.class);
+
+    @Inject
+    Executor executor;
+
+    @ConfigProperty(name = "app.cache.posts.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.cache.posts.fresh.ms", defaultValue = "30000")
+    long freshMs;
+
+    @ConfigProperty(name = "app.cache.posts.stale.ms", defaultValue = "300000")
+    long staleMs;
+
+    @ConfigProperty(name = "app.cache.posts.max-entries", defaultValue = "100")
+    long maxEntries;
+
+    private Cache<PostQuery, Entry> entries;
+
+    private final LongAdder freshHits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder refreshFailures = new LongAdder();
+
+    @PostConstruct
+    void init() {
+        entries = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(freshMs + staleMs))
+                .build();
+    }
+
+    public CompletableFuture<List<PostResponse>> get(
+            PostQuery key,
+            Supplier<CompletableFuture<List<PostResponse>>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        Entry entry = entries.getIfPresent(key);
+        long now = System.nanoTime();
+
+        if (entry == null || entry.ageMs(now) >= freshMs + staleMs) {
+            misses.increment();
+            return load(key, loader);
+        }
+
+        if (entry.ageMs(now) < freshMs) {
+            freshHits.increment();
+            return CompletableFuture.completedFuture(entry.value);
+        }
+
+        staleHits.increment();
+        if (entry.refreshing.compareAndSet(false, true)) {
+            refreshInBackground(key, entry, loader);
+        }
+        return CompletableFuture.completedFuture(entry.value);
+    }
+
+    private CompletableFuture<List<PostResponse>> load(
+            PostQuery key,
+            Supplier<CompletableFuture<List<PostResponse>>> loader) {
+        return loader.get().thenApply(result -> {
+            if (PartialPosts.isPartial(result)) {
+                return result;
+            }
+            List<PostResponse> value = List.copyOf(result);
+            entries.put(key, new Entry(value, System.nanoTime()));
+            return value;
+        });
+    }
+
+    private void refreshInBackground(
+            PostQuery key,
+            Entry stale,
+            Supplier<CompletableFuture<List<PostResponse>>> loader) {
+        refreshes.increment();
+        // La recarga no pertenece a la petición que la dispara: no hereda su plazo
+        CompletableFuture.runAsync(() -> { }, executor)
+                .thenCompose(ignored -> Deadline.detached(() -> load(key, loader)))
+                .whenComplete((value, ex) -> {
+                    if (ex == null && !PartialPosts.isPartial(value)) {
+                        LOG.debug("Resultado agregado {} recargado en segundo plano", key);
+                        return;
+                    }
+                    refreshFailures.increment();
+                    if (ex != null) {
+                        LOG.warn("Fallo la recarga en segundo plano de {}, se mantiene el valor obsoleto", key, ex);
+                    } else {
+                        LOG.warn("La recarga en segundo plano de {} quedó incompleta, se mantiene el valor obsoleto", key);
+                    }
+                    stale.refreshing.set(false);
+                });
+    }
+
+    public void invalidateAll() {
+        entries.invalidateAll();
+    }
+
+    public long size() {
+        return entries.estimatedSize();
+    }
+
+    public long freshHits() {
+        return freshHits.sum();
+    }
+
+    public long staleHits() {
+        return staleHits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long refreshes() {
+        return refreshes.sum();
+    }
+
+    public long refreshFailures() {
+        return refreshFailures.sum();
+    }
+
+    private static final class Entry {
+        final List<PostResponse> value;
+        final long loadedAtNanos;
+        final AtomicBoolean refreshing = new AtomicBoolean();
+
+        Entry(List<PostResponse> value, long loadedAtNanos) {
+            this.value = value;
+            this.loadedAtNanos = loadedAtNanos;
+        }
+
+        long ageMs(long now) {
+            return (now - loadedAtNanos) / 1_000_000L;
+        }
+    }
+}
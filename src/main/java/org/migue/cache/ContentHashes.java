@@ -0,0 +1,78 @@
+package org.migue.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostResponse;
+
+import java.util.List;
+
+/**
+ * Validadores ETag fuertes para listas de posts enriquecidos.
+ * El hash de cada post (FNV-1a de 64 bits sobre todos sus campos y comentarios, cada uno
+ * precedido de su longitud, {@code -1} para {@code null}) se guarda por identidad del
+ * objeto: los posts servidos desde las cachés o la vista materializada son las mismas
+ * instancias, así que solo se calcula el hash de los posts nuevos. Los PostResponse no se
+ * modifican una vez enriquecidos.
+ */
+@ApplicationScoped
+public class ContentHashes {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    // weakKeys compara por identidad y libera la entrada cuando el post deja de usarse
+    private final Cache<PostResponse, Long> postHashes = Caffeine.newBuilder().weakKeys().build();
+
+    /**
+     * ETag entrecomillado que depende del contenido y del orden de los posts.
+     */
+    public String etagOf(List<PostResponse> posts) {
+        long hash = FNV_OFFSET ^ posts.size();
+        for (PostResponse post : posts) {
+            hash = hash * FNV_PRIME + postHashes.get(post, ContentHashes::hash);
+        }
+        return "\"" + Long.toHexString(hash) + "\"";
+    }
+
+    static long hash(PostResponse post) {
+        long hash = FNV_OFFSET;
+        hash = mix(hash, post.id);
+        hash = mix(hash, post.title);
+        hash = mix(hash, post.body);
+        hash = mix(hash, post.authorName);
+        hash = mix(hash, post.authorEmail);
+        hash = mixLength(hash, post.comments == null ? -1 : post.comments.size());
+        if (post.comments != null) {
+            for (CommentDto comment : post.comments) {
+                hash = mix(hash, comment.id);
+                hash = mix(hash, comment.postId);
+                hash = mix(hash, comment.name);
+                hash = mix(hash, comment.email);
+                hash = mix(hash, comment.body);
+            }
+        }
+        return hash;
+    }
+
+    // La longitud delante delimita cada campo y distingue null de la cadena "null"
+    private static long mix(long hash, Object value) {
+        if (value == null) {
+            return mixLength(hash, -1);
+        }
+        String text = value.toString();
+        hash = mixLength(hash, text.length());
+        for (int i = 0; i < text.length(); i++) {
+            hash = (hash ^ text.charAt(i)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    private static long mixLength(long hash, int length) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            hash = (hash ^ ((length >>> shift) & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+}
@@ -0,0 +1,104 @@
+package org.migue.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostResponse;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Vista materializada de todos los posts enriquecidos.
+ * Cada refresco construye una {@link Snapshot} inmutable nueva y la publica de una vez
+ * (copy-on-write), de modo que las lecturas nunca toman bloqueos ni ven un estado a medias.
+ * La vista se marca como obsoleta mientras sus datos no se han podido confirmar con el
+ * servicio externo: cargados desde disco al arrancar o tras un refresco fallido.
+ * Las últimas versiones publicadas se conservan para que los cursores de paginación
+ * emitidos sobre ellas sigan dando páginas coherentes.
+ */
+@ApplicationScoped
+public class MaterializedPostsView {
+
+    static final int RETAINED_VERSIONS = 3;
+
+    private volatile Snapshot snapshot;
+    private volatile boolean stale;
+    private final ConcurrentNavigableMap<Long, Snapshot> recent = new ConcurrentSkipListMap<>();
+
+    /**
+     * Última snapshot publicada, o {@code null} si la vista aún no se ha cargado.
+     */
+    public Snapshot current() {
+        return snapshot;
+    }
+
+    /**
+     * Snapshot con esa versión si es una de las {@value #RETAINED_VERSIONS} últimas publicadas.
+     */
+    public Snapshot snapshot(long version) {
+        return recent.get(version);
+    }
+
+    public boolean isReady() {
+        return snapshot != null;
+    }
+
+    /**
+     * {@code true} si la snapshot actual no procede de un refresco correcto reciente.
+     */
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void publish(Snapshot next) {
+        retain(next);
+        snapshot = next;
+        stale = false;
+    }
+
+    /**
+     * Publica datos de última versión conocida, por ejemplo restaurados desde disco.
+     */
+    public void restore(Snapshot lastKnownGood) {
+        retain(lastKnownGood);
+        snapshot = lastKnownGood;
+        stale = true;
+    }
+
+    private void retain(Snapshot next) {
+        if (next == null) {
+            recent.clear();
+            return;
+        }
+        recent.put(next.version(), next);
+        while (recent.size() > RETAINED_VERSIONS) {
+            recent.pollFirstEntry();
+        }
+    }
+
+    public void markStale() {
+        if (snapshot != null) {
+            stale = true;
+        }
+    }
+
+    /**
+     * @param posts     lista de posts en el orden del servicio externo
+     * @param responses post enriquecido por id
+     * @param hashes    huella del contenido de cada post, para detectar cambios
+     */
+    public record Snapshot(List<PostDto> posts,
+                           Map<Long, PostResponse> responses,
+                           Map<Long, Integer> hashes,
+                           long version,
+                           long builtAtMillis) {
+
+        public Snapshot {
+            posts = List.copyOf(posts);
+            responses = Map.copyOf(responses);
+            hashes = Map.copyOf(hashes);
+        }
+    }
+}
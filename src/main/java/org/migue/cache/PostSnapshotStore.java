@@ -0,0 +1,265 @@
+package org.migue.cache;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.zip.CRC32;
+
+/**
+ * Copia en disco de la última {@link MaterializedPostsView.Snapshot} publicada, para
+ * arrancar con datos sin esperar al servicio externo y seguir sirviendo si este no responde.
+ * <p>
+ * Formato binario (big-endian): cabecera de {@value #HEADER_BYTES} bytes con la marca
+ * {@code PSNP}, la versión del formato, la versión de la vista, el instante de construcción,
+ * el número de posts, la longitud del contenido y su CRC32; después, por cada post, sus
+ * campos, su huella y su respuesta enriquecida, precedida de un byte que indica si falta
+ * ({@code 0}), si está completa ({@code 1}) o si se construyó con respaldos ({@code 2}).
+ * Las cadenas van en UTF-8 precedidas de su longitud ({@code -1} para {@code null}). El
+ * fichero se escribe en uno temporal que luego se renombra, y se lee con
+ * {@link FileChannel#map}; si la cabecera o el CRC no cuadran se descarta.
+ */
+@ApplicationScoped
+public class PostSnapshotStore {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostSnapshotStore.class);
+
+    private static final int MAGIC = 0x50534E50;
+    private static final short FORMAT_VERSION = 1;
+    static final int HEADER_BYTES = 36;
+    private static final long NULL_ID = Long.MIN_VALUE;
+    private static final byte NO_RESPONSE = 0;
+    private static final byte RESPONSE = 1;
+    private static final byte DEGRADED_RESPONSE = 2;
+
+    @ConfigProperty(name = "app.snapshot.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.snapshot.path", defaultValue = "data/posts-view.snapshot")
+    Path path;
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Snapshot guardada en disco, o vacío si no hay fichero o no es válido.
+     */
+    public Optional<MaterializedPostsView.Snapshot> load() {
+        if (!enabled || !Files.isRegularFile(path)) {
+            return Optional.empty();
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return Optional.of(decode(buffer));
+        } catch (IOException | RuntimeException ex) {
+            LOG.warn("Se descarta la snapshot de posts en {}: {}", path, ex.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Sustituye el fichero por {@code snapshot}. Los errores se registran y no se propagan:
+     * la vista en memoria sigue siendo válida.
+     */
+    public void save(MaterializedPostsView.Snapshot snapshot) {
+        if (!enabled) {
+            return;
+        }
+        try {
+            byte[] file = encode(snapshot);
+            Path parent = path.toAbsolutePath().getParent();
+            Files.createDirectories(parent);
+            Path temp = Files.createTempFile(parent, "posts-view", ".tmp");
+            try {
+                Files.write(temp, file, StandardOpenOption.SYNC);
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            LOG.debug("Snapshot v{} de posts guardada en {} ({} bytes)", snapshot.version(), path, file.length);
+        } catch (IOException ex) {
+            LOG.warn("No se pudo guardar la snapshot de posts en {}", path, ex);
+        }
+    }
+
+    static byte[] encode(MaterializedPostsView.Snapshot snapshot) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream();
+        DataOutputStream payload = new DataOutputStream(payloadBytes);
+        for (PostDto post : snapshot.posts()) {
+            payload.writeLong(post.id);
+            writeId(payload, post.userId);
+            writeString(payload, post.title);
+            writeString(payload, post.body);
+            payload.writeInt(snapshot.hashes().getOrDefault(post.id, 0));
+            writeResponse(payload, snapshot.responses().get(post.id));
+        }
+        payload.flush();
+
+        CRC32 crc = new CRC32();
+        crc.update(payloadBytes.toByteArray());
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                .putInt(MAGIC)
+                .putShort(FORMAT_VERSION)
+                .putShort((short) 0)
+                .putLong(snapshot.version())
+                .putLong(snapshot.builtAtMillis())
+                .putInt(snapshot.posts().size())
+                .putInt(payloadBytes.size())
+                .putInt((int) crc.getValue());
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream(HEADER_BYTES + payloadBytes.size());
+        file.write(header.array());
+        payloadBytes.writeTo(file);
+        return file.toByteArray();
+    }
+
+    static MaterializedPostsView.Snapshot decode(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+            throw new IOException("no es una snapshot de posts");
+        }
+        short format = buffer.getShort();
+        if (format != FORMAT_VERSION) {
+            throw new IOException("versión de formato " + format + " no soportada");
+        }
+        buffer.getShort();
+        long version = buffer.getLong();
+        long builtAtMillis = buffer.getLong();
+        int count = buffer.getInt();
+        int length = buffer.getInt();
+        int checksum = buffer.getInt();
+        if (count < 0 || length != buffer.remaining()) {
+            throw new IOException("longitud inconsistente");
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice());
+        if ((int) crc.getValue() != checksum) {
+            throw new IOException("CRC32 incorrecto");
+        }
+
+        List<PostDto> posts = new ArrayList<>(count);
+        Map<Long, Integer> hashes = new HashMap<>();
+        Map<Long, PostResponse> responses = new HashMap<>();
+        try {
+            for (int i = 0; i < count; i++) {
+                PostDto post = new PostDto();
+                post.id = buffer.getLong();
+                post.userId = readId(buffer);
+                post.title = readString(buffer);
+                post.body = readString(buffer);
+                posts.add(post);
+                hashes.put(post.id, buffer.getInt());
+                PostResponse response = readResponse(buffer);
+                if (response != null) {
+                    response.id = post.id;
+                    responses.put(post.id, response);
+                }
+            }
+        } catch (BufferUnderflowException ex) {
+            throw new IOException("snapshot truncada", ex);
+        }
+        return new MaterializedPostsView.Snapshot(posts, responses, hashes, version, builtAtMillis);
+    }
+
+    private static void writeResponse(DataOutputStream out, PostResponse response) throws IOException {
+        out.writeByte(response == null ? NO_RESPONSE : response.degraded ? DEGRADED_RESPONSE : RESPONSE);
+        if (response == null) {
+            return;
+        }
+        writeString(out, response.title);
+        writeString(out, response.body);
+        writeString(out, response.authorName);
+        writeString(out, response.authorEmail);
+        if (response.comments == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(response.comments.size());
+        for (CommentDto comment : response.comments) {
+            writeId(out, comment.id);
+            writeId(out, comment.postId);
+            writeString(out, comment.name);
+            writeString(out, comment.email);
+            writeString(out, comment.body);
+        }
+    }
+
+    private static PostResponse readResponse(ByteBuffer buffer) {
+        byte kind = buffer.get();
+        if (kind == NO_RESPONSE) {
+            return null;
+        }
+        PostResponse response = new PostResponse();
+        response.degraded = kind == DEGRADED_RESPONSE;
+        response.title = readString(buffer);
+        response.body = readString(buffer);
+        response.authorName = readString(buffer);
+        response.authorEmail = readString(buffer);
+        int comments = buffer.getInt();
+        if (comments >= 0) {
+            response.comments = new ArrayList<>(comments);
+            for (int i = 0; i < comments; i++) {
+                CommentDto comment = new CommentDto();
+                comment.id = readId(buffer);
+                comment.postId = readId(buffer);
+                comment.name = readString(buffer);
+                comment.email = readString(buffer);
+                comment.body = readString(buffer);
+                response.comments.add(comment);
+            }
+        }
+        return response;
+    }
+
+    private static void writeId(DataOutputStream out, Long id) throws IOException {
+        out.writeLong(id != null ? id : NULL_ID);
+    }
+
+    private static Long readId(ByteBuffer buffer) {
+        long id = buffer.getLong();
+        return id == NULL_ID ? null : id;
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,168 @@
+package org.migue.cache;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Objects;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Caché de respuestas de GET /posts ya serializadas a JSON, en claro y comprimidas con gzip.
+ * La clave es el ETag del resultado: como el ETag depende del contenido y del orden de los
+ * posts, una misma versión de los datos se serializa y comprime una sola vez aunque la
+ * pidan consultas distintas. El ETag es un hash de 64 bits, así que cada entrada guarda
+ * también los posts que serializó y un acierto solo se sirve si coinciden con los pedidos.
+ * En cada respuesta el servidor copia el array a un buffer directo de Vert.x; esa copia es
+ * lo único que queda, sin volver a serializar ni a comprimir.
+ */
+@ApplicationScoped
+public class SerializedResponseCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(SerializedResponseCache.class);
+
+    @Inject
+    ObjectMapper objectMapper;
+
+    @ConfigProperty(name = "app.cache.serialized.enabled", defaultValue = "true")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.cache.serialized.max-bytes", defaultValue = "16777216")
+    long maxBytes;
+
+    // Por debajo de este tamaño gzip no compensa y se sirve siempre en claro
+    @ConfigProperty(name = "app.cache.serialized.min-gzip-bytes", defaultValue = "1024")
+    int minGzipBytes;
+
+    private Cache<String, Variants> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((String etag, Variants variants) -> variants.weight())
+                .recordStats()
+                .build();
+        LOG.info("Caché de respuestas serializadas: enabled={}, maxBytes={}", enabled, maxBytes);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Variants get(String etag, List<PostResponse> posts) {
+        Variants variants = cache.get(etag, ignored -> serialize(posts));
+        if (variants.serializes(posts)) {
+            return variants;
+        }
+        // Colisión del ETag: nunca se sirve el cuerpo de otro resultado
+        LOG.warn("Colisión de ETag {} en la caché de respuestas serializadas", etag);
+        variants = serialize(posts);
+        cache.put(etag, variants);
+        return variants;
+    }
+
+    private Variants serialize(List<PostResponse> posts) {
+        try {
+            byte[] identity = objectMapper.writeValueAsBytes(posts);
+            byte[] gzip = identity.length >= minGzipBytes ? gzip(identity) : null;
+            return new Variants(posts, identity, gzip);
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static byte[] gzip(byte[] data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return out.toByteArray();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    /**
+     * Variantes de una respuesta serializada a partir de {@code posts}; {@code gzip} es
+     * {@code null} si la respuesta es demasiado pequeña para comprimirla. Ni los arrays ni
+     * la lista deben modificarse.
+     */
+    public record Variants(List<PostResponse> posts, byte[] identity, byte[] gzip) {
+
+        // Los posts retenidos se estiman con el tamaño de su JSON, que es menor que el de los objetos
+        int weight() {
+            long bytes = 2L * identity.length + (gzip != null ? gzip.length : 0);
+            return (int) Math.min(Integer.MAX_VALUE, bytes);
+        }
+
+        // Normalmente son las mismas instancias; las proyecciones de ?fields= son copias
+        boolean serializes(List<PostResponse> requested) {
+            if (requested.size() != posts.size()) {
+                return false;
+            }
+            for (int i = 0; i < posts.size(); i++) {
+                if (!sameContent(posts.get(i), requested.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameContent(PostResponse a, PostResponse b) {
+            if (a == b) {
+                return true;
+            }
+            if (a == null || b == null
+                    || !Objects.equals(a.id, b.id)
+                    || !Objects.equals(a.title, b.title)
+                    || !Objects.equals(a.body, b.body)
+                    || !Objects.equals(a.authorName, b.authorName)
+                    || !Objects.equals(a.authorEmail, b.authorEmail)) {
+                return false;
+            }
+            if (a.comments == b.comments) {
+                return true;
+            }
+            if (a.comments == null || b.comments == null || a.comments.size() != b.comments.size()) {
+                return false;
+            }
+            for (int i = 0; i < a.comments.size(); i++) {
+                if (!sameContent(a.comments.get(i), b.comments.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean sameContent(CommentDto a, CommentDto b) {
+            return a == b || a != null && b != null
+                    && Objects.equals(a.id, b.id)
+                    && Objects.equals(a.postId, b.postId)
+                    && Objects.equals(a.name, b.name)
+                    && Objects.equals(a.email, b.email)
+                    && Objects.equals(a.body, b.body);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package org.migue.cache;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Agrupa llamadas concurrentes con la misma clave en una sola ejecución.
+ * Mientras una llamada está en curso, las siguientes con la misma clave reciben su
+ * resultado en lugar de lanzar otra; al terminar, la clave queda libre de nuevo.
+ */
+public class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    /**
+     * Cada llamante recibe su propia copia del futuro compartido, de modo que cancelar
+     * una petición no afecta a las demás que esperan el mismo resultado.
+     */
+    public CompletableFuture<V> execute(K key, Supplier<CompletableFuture<V>> call) {
+        CompletableFuture<V> shared = new CompletableFuture<>();
+        CompletableFuture<V> existing = inFlight.putIfAbsent(key, shared);
+        if (existing != null) {
+            coalesced.increment();
+            return existing.copy();
+        }
+
+        executions.increment();
+        CompletableFuture<V> source;
+        try {
+            source = call.get();
+        } catch (RuntimeException ex) {
+            source = CompletableFuture.failedFuture(ex);
+        }
+        source.whenComplete((value, ex) -> {
+            // Se libera la clave antes de completar para que las llamadas posteriores no reciban un resultado ya entregado
+            inFlight.remove(key, shared);
+            if (ex != null) {
+                shared.completeExceptionally(ex);
+            } else {
+                shared.complete(value);
+            }
+        });
+        return shared.copy();
+    }
+
+    public int inFlight() {
+        return inFlight.size();
+    }
+
+    public long executions() {
+        return executions.sum();
+    }
+
+    public long coalesced() {
+        return coalesced.sum();
+    }
+}
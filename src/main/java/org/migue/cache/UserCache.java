@@ -0,0 +1,76 @@
+package org.migue.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.annotation.PostConstruct;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.migue.dto.UserDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * Caché de usuarios compartida entre peticiones.
+ * Usa Caffeine (desalojo W-TinyLFU) con TTL y tamaño máximo configurables; las búsquedas
+ * en curso se comparten, por lo que peticiones concurrentes no repiten la llamada externa.
+ */
+@ApplicationScoped
+public class UserCache {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UserCache.class);
+
+    @ConfigProperty(name = "app.cache.users.ttl.ms", defaultValue = "600000")
+    long ttlMs;
+
+    @ConfigProperty(name = "app.cache.users.max-entries", defaultValue = "1000")
+    long maxEntries;
+
+    private AsyncCache<Long, UserDto> cache;
+
+    @PostConstruct
+    void init() {
+        cache = Caffeine.newBuilder()
+                .maximumSize(maxEntries)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .buildAsync();
+        LOG.info("Caché de usuarios inicializada: ttl={} ms, maxEntries={}", ttlMs, maxEntries);
+    }
+
+    /**
+     * Devuelve el usuario en caché o lo carga con {@code loader}. Los futuros que terminan
+     * con error o con {@code null} no quedan almacenados.
+     */
+    public CompletableFuture<UserDto> get(Long userId, Function<Long, CompletableFuture<UserDto>> loader) {
+        return cache.get(userId, (id, ignored) -> loader.apply(id));
+    }
+
+    /**
+     * Resuelve varios usuarios a la vez: los que faltan en caché se cargan juntos con
+     * {@code batchLoader}, y las búsquedas en curso de otras peticiones se reutilizan.
+     */
+    public CompletableFuture<Map<Long, UserDto>> getAll(
+            Set<Long> userIds,
+            Function<Set<Long>, CompletableFuture<Map<Long, UserDto>>> batchLoader) {
+        return cache.getAll(userIds, (missing, ignored) -> batchLoader.apply(Set.copyOf(missing)));
+    }
+
+    public void invalidateAll() {
+        cache.synchronous().invalidateAll();
+    }
+
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+}
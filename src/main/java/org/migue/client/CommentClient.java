@@ -4,18 +4,28 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.migue.dto.CommentDto;
 
 import java.util.List;
 
-@Path("/posts")
+@Path("/")
 @RegisterRestClient(configKey = "comment-api")
 public interface CommentClient {
 
     @GET
-    @Path("/{id}/comments")
+    @Path("/posts/{id}/comments")
     @Produces(MediaType.APPLICATION_JSON)
     List<CommentDto> getComments(@PathParam("id") Long postId);
+
+    /**
+     * Colección completa de comentarios, opcionalmente filtrada por postId
+     * ({@code /comments?postId=1&postId=2}). Con {@code null} se devuelven todos.
+     */
+    @GET
+    @Path("/comments")
+    @Produces(MediaType.APPLICATION_JSON)
+    List<CommentDto> getCommentsByPostIds(@QueryParam("postId") List<Long> postIds);
 }
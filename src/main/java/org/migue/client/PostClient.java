@@ -1,6 +1,7 @@
 package org.migue.client;
 
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
@@ -14,6 +15,13 @@ public interface PostClient {
     @Produces(MediaType.APPLICATION_JSON)
     List<PostDto> getPosts();
 
+    /**
+     * Petición condicional: con un ETag conocido el servicio puede responder 304 sin cuerpo.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Response getPostsIfNoneMatch(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String etag);
+
     @DELETE
     @Path("/{id}")
     Response deletePost(@PathParam("id") Long postId);
@@ -0,0 +1,31 @@
+package org.migue.client;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.migue.dto.CommentDto;
+
+import java.util.List;
+
+/**
+ * Variante no bloqueante de {@link CommentClient}; comparte la configuración {@code comment-api}.
+ */
+@Path("/")
+@RegisterRestClient(configKey = "comment-api")
+public interface ReactiveCommentClient {
+
+    @GET
+    @Path("/posts/{id}/comments")
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<List<CommentDto>> getComments(@PathParam("id") Long postId);
+
+    @GET
+    @Path("/comments")
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<List<CommentDto>> getCommentsByPostIds(@QueryParam("postId") List<Long> postIds);
+}
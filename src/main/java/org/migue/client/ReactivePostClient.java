@@ -0,0 +1,30 @@
+package org.migue.client;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.HeaderParam;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.migue.dto.PostDto;
+
+import java.util.List;
+
+/**
+ * Variante no bloqueante de {@link PostClient}; comparte la configuración {@code post-api}.
+ */
+@Path("/posts")
+@RegisterRestClient(configKey = "post-api")
+public interface ReactivePostClient {
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<List<PostDto>> getPosts();
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<Response> getPostsIfNoneMatch(@HeaderParam(HttpHeaders.IF_NONE_MATCH) String etag);
+}
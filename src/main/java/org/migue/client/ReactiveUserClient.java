@@ -0,0 +1,30 @@
+package org.migue.client;
+
+import io.smallrye.mutiny.Uni;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
+import jakarta.ws.rs.core.MediaType;
+import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
+import org.migue.dto.UserDto;
+
+import java.util.List;
+
+/**
+ * Variante no bloqueante de {@link UserClient}; comparte la configuración {@code user-api}.
+ */
+@Path("/users")
+@RegisterRestClient(configKey = "user-api")
+public interface ReactiveUserClient {
+
+    @GET
+    @Path("/{id}")
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<UserDto> getUser(@PathParam("id") Long userId);
+
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    Uni<List<UserDto>> getUsers(@QueryParam("id") List<Long> userIds);
+}
@@ -4,10 +4,13 @@ import jakarta.ws.rs.GET;
 import jakarta.ws.rs.Path;
 import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.MediaType;
 import org.eclipse.microprofile.rest.client.inject.RegisterRestClient;
 import org.migue.dto.UserDto;
 
+import java.util.List;
+
 @Path("/users")
 @RegisterRestClient(configKey = "user-api")
 public interface UserClient {
@@ -16,4 +19,12 @@ public interface UserClient {
     @Path("/{id}")
     @Produces(MediaType.APPLICATION_JSON)
     UserDto getUser(@PathParam("id") Long userId);
+
+    /**
+     * Varios usuarios en una sola llamada ({@code /users?id=1&id=2}). Con {@code null}
+     * se devuelve la colección completa.
+     */
+    @GET
+    @Produces(MediaType.APPLICATION_JSON)
+    List<UserDto> getUsers(@QueryParam("id") List<Long> userIds);
 }
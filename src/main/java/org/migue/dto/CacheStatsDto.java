@@ -0,0 +1,11 @@
+package org.migue.dto;
+
+public class CacheStatsDto {
+
+    public long size;
+    public long hits;
+    public long misses;
+    public double hitRate;
+    public long evictions;
+    public long loadFailures;
+}
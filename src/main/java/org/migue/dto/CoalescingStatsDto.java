@@ -0,0 +1,8 @@
+package org.migue.dto;
+
+public class CoalescingStatsDto {
+
+    public int inFlight;
+    public long executions;
+    public long coalesced;
+}
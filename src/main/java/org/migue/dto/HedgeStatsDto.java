@@ -0,0 +1,9 @@
+package org.migue.dto;
+
+public class HedgeStatsDto {
+
+    public long hedgeDelayMs;
+    public long hedged;
+    public long hedgeWins;
+    public long budgetExhausted;
+}
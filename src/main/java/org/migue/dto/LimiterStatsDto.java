@@ -0,0 +1,9 @@
+package org.migue.dto;
+
+public class LimiterStatsDto {
+
+    public int limit;
+    public int inFlight;
+    public int queueDepth;
+    public long rejected;
+}
@@ -0,0 +1,33 @@
+package org.migue.dto;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * Resultado de una agregación cortada por el plazo de la petición: solo los posts que se
+ * completaron a tiempo, en su orden. Se serializa como cualquier lista; quien lo recibe
+ * lo distingue por su tipo para marcar la respuesta como parcial y no guardarlo en caché.
+ */
+public final class PartialPosts extends AbstractList<PostResponse> implements RandomAccess {
+
+    private final List<PostResponse> posts;
+
+    public PartialPosts(List<PostResponse> posts) {
+        this.posts = List.copyOf(posts);
+    }
+
+    public static boolean isPartial(List<PostResponse> posts) {
+        return posts instanceof PartialPosts;
+    }
+
+    @Override
+    public PostResponse get(int index) {
+        return posts.get(index);
+    }
+
+    @Override
+    public int size() {
+        return posts.size();
+    }
+}
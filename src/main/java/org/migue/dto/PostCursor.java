@@ -0,0 +1,86 @@
+package org.migue.dto;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Objects;
+
+/**
+ * Cursor opaco de GET /posts: versión de la lista de posts sobre la que se pagina, id del
+ * último post entregado y los filtros ({@code authorId} y {@code search} normalizados) con
+ * los que se obtuvo. La versión {@code 0} indica la lista en vivo del servicio externo,
+ * sin vista materializada.
+ */
+public record PostCursor(long version, long lastId, Long authorId, String search) {
+
+    private static final int HEADER_BYTES = Long.BYTES * 2 + 1;
+    private static final byte HAS_AUTHOR = 1;
+    private static final byte HAS_SEARCH = 2;
+
+    public static PostCursor of(long version, long lastId, PostQuery query) {
+        return new PostCursor(version, lastId, query.authorId(), query.search());
+    }
+
+    /**
+     * Un cursor solo sirve para continuar una consulta ya normalizada con exactamente
+     * los mismos filtros.
+     */
+    public boolean matches(PostQuery query) {
+        return Objects.equals(authorId, query.authorId()) && Objects.equals(search, query.search());
+    }
+
+    public String encode() {
+        byte[] searchBytes = search != null ? search.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + (authorId != null ? Long.BYTES : 0) + searchBytes.length)
+                .putLong(version)
+                .putLong(lastId)
+                .put((byte) ((authorId != null ? HAS_AUTHOR : 0) | (search != null ? HAS_SEARCH : 0)));
+        if (authorId != null) {
+            buffer.putLong(authorId);
+        }
+        buffer.put(searchBytes);
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(buffer.array());
+    }
+
+    /**
+     * @throws IllegalArgumentException si {@code value} no es un cursor emitido por la API
+     */
+    public static PostCursor decode(String value) {
+        byte[] bytes;
+        try {
+            bytes = Base64.getUrlDecoder().decode(value);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        if (bytes.length < HEADER_BYTES) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long version = buffer.getLong();
+        long lastId = buffer.getLong();
+        byte flags = buffer.get();
+        if ((flags & ~(HAS_AUTHOR | HAS_SEARCH)) != 0
+                || (flags & HAS_AUTHOR) != 0 && buffer.remaining() < Long.BYTES) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        Long authorId = (flags & HAS_AUTHOR) != 0 ? buffer.getLong() : null;
+        if ((flags & HAS_SEARCH) == 0 ? buffer.hasRemaining() : !buffer.hasRemaining()) {
+            throw new IllegalArgumentException("Cursor inválido");
+        }
+        String search = null;
+        if ((flags & HAS_SEARCH) != 0) {
+            try {
+                search = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPORT)
+                        .onUnmappableCharacter(CodingErrorAction.REPORT)
+                        .decode(buffer)
+                        .toString();
+            } catch (CharacterCodingException e) {
+                throw new IllegalArgumentException("Cursor inválido");
+            }
+        }
+        return new PostCursor(version, lastId, authorId, search);
+    }
+}
@@ -0,0 +1,57 @@
+package org.migue.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Campos de {@link PostResponse} seleccionables con {@code ?fields=} en GET /posts.
+ */
+public enum PostField {
+    ID("id"),
+    TITLE("title"),
+    BODY("body"),
+    AUTHOR_NAME("authorName"),
+    AUTHOR_EMAIL("authorEmail"),
+    COMMENTS("comments");
+
+    private final String jsonName;
+
+    PostField(String jsonName) {
+        this.jsonName = jsonName;
+    }
+
+    public String jsonName() {
+        return jsonName;
+    }
+
+    /**
+     * Interpreta una lista separada por comas de nombres JSON. Devuelve {@code null} (todos
+     * los campos) si la lista está vacía; el id se incluye siempre.
+     *
+     * @throws IllegalArgumentException si algún nombre no corresponde a un campo
+     */
+    public static Set<PostField> parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return null;
+        }
+        Set<PostField> selected = EnumSet.of(ID);
+        for (String name : fields.split(",")) {
+            String trimmed = name.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            selected.add(fromJsonName(trimmed));
+        }
+        return selected;
+    }
+
+    private static PostField fromJsonName(String name) {
+        for (PostField field : values()) {
+            if (field.jsonName.toLowerCase(Locale.ROOT).equals(name.toLowerCase(Locale.ROOT))) {
+                return field;
+            }
+        }
+        throw new IllegalArgumentException("Campo desconocido: " + name);
+    }
+}
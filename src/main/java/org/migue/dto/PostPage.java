@@ -0,0 +1,9 @@
+package org.migue.dto;
+
+import java.util.List;
+
+/**
+ * Página de GET /posts paginada por cursor. {@code nextCursor} es {@code null} en la última.
+ */
+public record PostPage(List<PostResponse> posts, String nextCursor) {
+}
@@ -0,0 +1,40 @@
+package org.migue.dto;
+
+import java.util.EnumSet;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Parámetros de filtrado y paginación de GET /posts, ya validados y normalizados.
+ * Se usa también como clave de la caché del resultado agregado. {@code fields} es
+ * {@code null} cuando se piden todos los campos.
+ */
+public record PostQuery(Long authorId, String search, int limit, int offset, Set<PostField> fields) {
+
+    public PostQuery(Long authorId, String search, int limit, int offset) {
+        this(authorId, search, limit, offset, null);
+    }
+
+    public static PostQuery unfiltered(int limit) {
+        return new PostQuery(null, null, limit, 0);
+    }
+
+    /**
+     * Forma canónica de la consulta: la búsqueda en minúsculas (la comparación no
+     * distingue mayúsculas), el límite recortado a {@code maxLimit} y los campos como
+     * {@code null} si se piden todos, de modo que consultas equivalentes compartan clave.
+     */
+    public PostQuery normalized(int maxLimit) {
+        String normalizedSearch = search == null || search.isBlank()
+                ? null
+                : search.toLowerCase(Locale.ROOT);
+        Set<PostField> normalizedFields = fields == null || fields.containsAll(EnumSet.allOf(PostField.class))
+                ? null
+                : Set.copyOf(fields);
+        return new PostQuery(authorId, normalizedSearch, Math.min(limit, maxLimit), offset, normalizedFields);
+    }
+
+    public boolean includes(PostField field) {
+        return fields == null || fields.contains(field);
+    }
+}
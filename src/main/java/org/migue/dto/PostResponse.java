@@ -1,7 +1,12 @@
 package org.migue.dto;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
 import java.util.List;
 
+// Los campos no pedidos con ?fields= quedan a null y no se serializan
+@JsonInclude(JsonInclude.Include.NON_NULL)
 public class PostResponse {
         public Long id;
         public String title;
@@ -9,6 +14,9 @@ public class PostResponse {
         public String authorName;
         public String authorEmail;
         public List<CommentDto> comments;
+        // Construida con algún respaldo (comentarios vacíos o autor por defecto); no se serializa
+        @JsonIgnore
+        public boolean degraded;
 
         public Long getId() {
                 return id;
@@ -57,4 +65,13 @@ public class PostResponse {
         public void setComments(List<CommentDto> comments) {
                 this.comments = comments;
         }
+
+        @JsonIgnore
+        public boolean isDegraded() {
+                return degraded;
+        }
+
+        public void setDegraded(boolean degraded) {
+                this.degraded = degraded;
+        }
 }
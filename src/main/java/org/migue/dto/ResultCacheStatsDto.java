@@ -0,0 +1,11 @@
+package org.migue.dto;
+
+public class ResultCacheStatsDto {
+
+    public long size;
+    public long freshHits;
+    public long staleHits;
+    public long misses;
+    public long refreshes;
+    public long refreshFailures;
+}
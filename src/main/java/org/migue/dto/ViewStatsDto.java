@@ -0,0 +1,10 @@
+package org.migue.dto;
+
+public class ViewStatsDto {
+
+    public boolean ready;
+    public long version;
+    public int posts;
+    public long ageMs;
+    public boolean stale;
+}
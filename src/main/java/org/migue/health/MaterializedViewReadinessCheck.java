@@ -0,0 +1,40 @@
+package org.migue.health;
+
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.health.HealthCheck;
+import org.eclipse.microprofile.health.HealthCheckResponse;
+import org.eclipse.microprofile.health.Readiness;
+import org.migue.cache.MaterializedPostsView;
+
+/**
+ * La aplicación no se declara lista hasta que la vista materializada de posts se ha
+ * cargado por primera vez (solo si la vista está activada).
+ */
+@Readiness
+@ApplicationScoped
+public class MaterializedViewReadinessCheck implements HealthCheck {
+
+    @Inject
+    MaterializedPostsView view;
+
+    @ConfigProperty(name = "app.view.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @Override
+    public HealthCheckResponse call() {
+        MaterializedPostsView.Snapshot snapshot = view.current();
+        if (!enabled) {
+            return HealthCheckResponse.named("posts-view").up().withData("enabled", false).build();
+        }
+        if (snapshot == null) {
+            return HealthCheckResponse.named("posts-view").down().withData("reason", "precarga en curso").build();
+        }
+        return HealthCheckResponse.named("posts-view").up()
+                .withData("version", snapshot.version())
+                .withData("posts", snapshot.posts().size())
+                .withData("stale", view.isStale())
+                .build();
+    }
+}
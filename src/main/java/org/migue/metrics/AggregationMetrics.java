@@ -0,0 +1,111 @@
+package org.migue.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Métricas del camino de agregación de GET /posts.
+ * <ul>
+ *   <li>{@code upstream.client.requests}: latencia de cada llamada externa por cliente y resultado.</li>
+ *   <li>{@code posts.aggregation}: duración de la agregación completa de una página.</li>
+ *   <li>{@code posts.aggregation.fanout}: llamadas de comentarios y autores que requiere cada página.</li>
+ *   <li>{@code posts.aggregation.fallbacks}: valores por defecto o respaldos aplicados.</li>
+ *   <li>{@code executor.queued} / {@code executor.active}: tareas en cola y en ejecución.</li>
+ * </ul>
+ * Los tiempos por endpoint los publica Quarkus en {@code http.server.requests}.
+ */
+@ApplicationScoped
+public class AggregationMetrics {
+
+    public static final String EMPTY_COMMENTS = "empty-comments";
+    public static final String DEFAULT_AUTHOR = "default-author";
+    public static final String BULK_COMMENTS = "bulk-comments";
+    public static final String USER_BATCH = "user-batch";
+    public static final String PARTIAL = "partial";
+
+    @Inject
+    MeterRegistry registry;
+
+    // Cada medidor se registra una sola vez; el camino caliente solo consulta el mapa
+    private final Map<String, Timer> upstreamTimers = new ConcurrentHashMap<>();
+    private final Map<String, Timer> aggregationTimers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> fanOutSummaries = new ConcurrentHashMap<>();
+    private final Map<String, Counter> fallbackCounters = new ConcurrentHashMap<>();
+
+    public AggregationMetrics() {
+    }
+
+    public AggregationMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void recordUpstream(String client, long nanos, boolean success) {
+        upstreamTimers.computeIfAbsent(client + (success ? "|success" : "|error"), key ->
+                        Timer.builder("upstream.client.requests")
+                                .description("Latencia de las llamadas a JSONPlaceholder")
+                                .tag("client", client)
+                                .tag("outcome", success ? "success" : "error")
+                                .publishPercentileHistogram()
+                                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordAggregation(long nanos, boolean success) {
+        aggregationTimers.computeIfAbsent(success ? "success" : "error", outcome ->
+                        Timer.builder("posts.aggregation")
+                                .description("Duración de la agregación de una página de posts")
+                                .tag("outcome", outcome)
+                                .publishPercentileHistogram()
+                                .register(registry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFanOut(String downstream, int calls) {
+        fanOutSummaries.computeIfAbsent(downstream, tag ->
+                        DistributionSummary.builder("posts.aggregation.fanout")
+                                .description("Llamadas externas necesarias por página")
+                                .tag("downstream", tag)
+                                .register(registry))
+                .record(calls);
+    }
+
+    public void fallback(String type) {
+        fallbackCounters.computeIfAbsent(type, tag ->
+                        Counter.builder("posts.aggregation.fallbacks")
+                                .description("Respaldos y valores por defecto aplicados durante la agregación")
+                                .tag("type", tag)
+                                .register(registry))
+                .increment();
+    }
+
+    /**
+     * Envuelve {@code delegate} para publicar cuántas tareas esperan y cuántas se están
+     * ejecutando con la etiqueta {@code name}.
+     */
+    public Executor instrument(String name, Executor delegate) {
+        InstrumentedExecutor instrumented = new InstrumentedExecutor(delegate);
+        registry.gauge("executor.queued", Tags.of("name", name),
+                instrumented, InstrumentedExecutor::queued);
+        registry.gauge("executor.active", Tags.of("name", name),
+                instrumented, InstrumentedExecutor::active);
+        return instrumented;
+    }
+
+    /**
+     * Gauge etiquetado sobre {@code target}; Micrometer solo guarda una referencia débil.
+     */
+    public <T> void gauge(String name, String tagKey, String tagValue, T target, ToDoubleFunction<T> value) {
+        registry.gauge(name, Tags.of(tagKey, tagValue), target, value);
+    }
+}
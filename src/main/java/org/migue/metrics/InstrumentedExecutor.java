@@ -0,0 +1,45 @@
+package org.migue.metrics;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executor que cuenta las tareas pendientes de empezar y las que están en ejecución.
+ */
+final class InstrumentedExecutor implements Executor {
+
+    private final Executor delegate;
+    private final AtomicInteger queued = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+
+    InstrumentedExecutor(Executor delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        queued.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                queued.decrementAndGet();
+                active.incrementAndGet();
+                try {
+                    task.run();
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RuntimeException ex) {
+            queued.decrementAndGet();
+            throw ex;
+        }
+    }
+
+    double queued() {
+        return queued.get();
+    }
+
+    double active() {
+        return active.get();
+    }
+}
@@ -0,0 +1,213 @@
+package org.migue.resilience;
+
+import jakarta.ws.rs.WebApplicationException;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Límite de concurrencia adaptativo (AIMD) para un servicio externo.
+ * El límite crece de uno en uno mientras las llamadas terminan bien y con una latencia
+ * cercana a la habitual, y se reduce de forma multiplicativa ante señales de sobrecarga
+ * (timeouts, errores de conexión, respuestas 5xx o 429) o latencias por encima de
+ * {@code latencyTolerance} veces la media. Las respuestas 4xx, como un 404 de un id que no
+ * existe, cuentan como llamadas normales. Las llamadas que superan el límite esperan en una
+ * cola acotada.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    // Peso de cada muestra en la media móvil de latencia
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final String name;
+    private final int minLimit;
+    private final int maxLimit;
+    private final int maxQueue;
+    private final double backoffRatio;
+    private final double latencyTolerance;
+    private final LongSupplier clock;
+
+    private final Object lock = new Object();
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private double limit;
+    private int inFlight;
+    private double averageLatencyNanos = -1;
+    private long rejected;
+
+    public AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                                      int maxQueue, double backoffRatio, double latencyTolerance) {
+        this(name, initialLimit, minLimit, maxLimit, maxQueue, backoffRatio, latencyTolerance, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(String name, int initialLimit, int minLimit, int maxLimit,
+                               int maxQueue, double backoffRatio, double latencyTolerance, LongSupplier clock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Límites inválidos para " + name);
+        }
+        this.name = name;
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.maxQueue = maxQueue;
+        this.backoffRatio = backoffRatio;
+        this.latencyTolerance = latencyTolerance;
+        this.clock = clock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    /**
+     * Ejecuta {@code call} cuando hay hueco bajo el límite actual. Si el futuro devuelto
+     * termina (por ejemplo, por timeout o cancelación) mientras la llamada sigue en cola, sale
+     * de la cola y no se ejecuta.
+     * Si se cancela con la llamada en curso, la cancelación se pasa al futuro de la llamada y
+     * el hueco se libera cuando este termina, sin contar como muestra: una llamada que no
+     * atiende la cancelación sigue ocupando su hueco hasta que acaba de verdad.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> call) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Runnable task = () -> run(call, result);
+
+        boolean runNow;
+        synchronized (lock) {
+            runNow = inFlight < (int) limit;
+            if (runNow) {
+                inFlight++;
+            } else if (queue.size() >= maxQueue) {
+                rejected++;
+                return CompletableFuture.failedFuture(new RejectedExecutionException(
+                        "Cola de " + name + " llena (" + maxQueue + " llamadas en espera)"));
+            } else {
+                queue.addLast(task);
+            }
+        }
+        if (runNow) {
+            task.run();
+        } else {
+            // Una llamada abandonada en cola no debe ocupar sitio hasta que le llegue el turno
+            result.whenComplete((value, ex) -> {
+                synchronized (lock) {
+                    queue.remove(task);
+                }
+            });
+        }
+        return result;
+    }
+
+    private <T> void run(Supplier<CompletableFuture<T>> call, CompletableFuture<T> result) {
+        if (result.isDone()) {
+            release(0, null, false);
+            return;
+        }
+
+        long start = clock.getAsLong();
+        CompletableFuture<T> started;
+        try {
+            started = call.get();
+        } catch (RuntimeException ex) {
+            started = CompletableFuture.failedFuture(ex);
+        }
+        CompletableFuture<T> future = started;
+        // Si quien espera cancela el resultado, la cancelación llega a la llamada en curso
+        result.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        future.whenComplete((value, ex) -> {
+            if (result.isCancelled()) {
+                // Cancelada por quien esperaba (plazo agotado o duplicado perdedor): no indica sobrecarga
+                release(0, null, false);
+                return;
+            }
+            release(clock.getAsLong() - start, ex, true);
+            if (ex != null) {
+                result.completeExceptionally(ex);
+            } else {
+                result.complete(value);
+            }
+        });
+    }
+
+    private void release(long latencyNanos, Throwable error, boolean sample) {
+        Runnable next;
+        synchronized (lock) {
+            inFlight--;
+            if (sample) {
+                adjustLimit(latencyNanos, error != null && isOverload(error));
+            }
+            next = pollIfAllowed();
+        }
+        while (next != null) {
+            next.run();
+            synchronized (lock) {
+                next = pollIfAllowed();
+            }
+        }
+    }
+
+    private Runnable pollIfAllowed() {
+        if (inFlight < (int) limit && !queue.isEmpty()) {
+            inFlight++;
+            return queue.pollFirst();
+        }
+        return null;
+    }
+
+    // Un 4xx es una respuesta del servicio a esa petición concreta, no una señal de saturación
+    static boolean isOverload(Throwable error) {
+        for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+            if (cause instanceof WebApplicationException web && web.getResponse() != null) {
+                int status = web.getResponse().getStatus();
+                return status >= 500 || status == 429;
+            }
+        }
+        return true;
+    }
+
+    private void adjustLimit(long latencyNanos, boolean overload) {
+        boolean slow = averageLatencyNanos > 0 && latencyNanos > averageLatencyNanos * latencyTolerance;
+
+        if (overload || slow) {
+            limit = Math.max(minLimit, limit * backoffRatio);
+        } else if (inFlight + 1 >= limit / 2) {
+            // Solo se crece si el límite se está usando realmente
+            limit = Math.min(maxLimit, limit + 1);
+        }
+
+        if (!overload) {
+            averageLatencyNanos = averageLatencyNanos < 0
+                    ? latencyNanos
+                    : averageLatencyNanos + LATENCY_SMOOTHING * (latencyNanos - averageLatencyNanos);
+        }
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int limit() {
+        synchronized (lock) {
+            return (int) limit;
+        }
+    }
+
+    public int inFlight() {
+        synchronized (lock) {
+            return inFlight;
+        }
+    }
+
+    public int queueDepth() {
+        synchronized (lock) {
+            return queue.size();
+        }
+    }
+
+    public long rejected() {
+        synchronized (lock) {
+            return rejected;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package org.migue.resilience;
+
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.ContextKey;
+import io.opentelemetry.context.ImplicitContextKeyed;
+import io.opentelemetry.context.Scope;
+
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Plazo de una petición, compartido por todas las llamadas externas que lanza.
+ * Viaja en el {@link Context} de OpenTelemetry, que la agregación ya propaga por los
+ * executors y las continuaciones, así que cualquier punto del reparto lo obtiene con
+ * {@link #current()}. Al vencer se completa {@link #expiry()} y después se cancelan las
+ * llamadas registradas con {@link #track} que siguen en curso: las acciones encadenadas a
+ * {@code expiry()} ven aún el estado anterior a la cancelación.
+ */
+public final class Deadline implements ImplicitContextKeyed {
+
+    private static final ContextKey<Deadline> KEY = ContextKey.named("request-deadline");
+
+    // Marca las cargas compartidas entre peticiones, que no dependen del plazo de ninguna
+    private static final Deadline NONE = new Deadline();
+
+    private final long expiresAtNanos;
+    private final CompletableFuture<Void> expiry = new CompletableFuture<>();
+    private final Set<CompletableFuture<?>> outstanding = ConcurrentHashMap.newKeySet();
+
+    private Deadline() {
+        expiresAtNanos = Long.MAX_VALUE;
+    }
+
+    private Deadline(long budgetMs) {
+        expiresAtNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        CompletableFuture.delayedExecutor(budgetMs, TimeUnit.MILLISECONDS).execute(this::expire);
+    }
+
+    public static Deadline after(long budgetMs) {
+        return new Deadline(budgetMs);
+    }
+
+    /**
+     * Plazo sin límite de tiempo que solo vence al llamar a {@link #expire()}; lo usan las
+     * cargas compartidas entre peticiones para cancelarse cuando ya no las espera ninguna.
+     */
+    public static Deadline manual() {
+        return new Deadline();
+    }
+
+    /**
+     * Plazo de la petición en curso, o {@code null} si no tiene.
+     */
+    public static Deadline current() {
+        Deadline deadline = Context.current().get(KEY);
+        return deadline == NONE ? null : deadline;
+    }
+
+    /**
+     * Ejecuta {@code call} sin el plazo de la petición en curso, conservando el resto del contexto.
+     */
+    public static <T> T detached(Supplier<T> call) {
+        try (Scope ignored = NONE.makeCurrent()) {
+            return call.get();
+        }
+    }
+
+    @Override
+    public Context storeInContext(Context context) {
+        return context.with(KEY, this);
+    }
+
+    public long remainingMillis() {
+        return Math.max(0, TimeUnit.NANOSECONDS.toMillis(expiresAtNanos - System.nanoTime()));
+    }
+
+    public boolean isExpired() {
+        return expiry.isDone();
+    }
+
+    /**
+     * Futuro que se completa cuando vence el plazo.
+     */
+    public CompletableFuture<Void> expiry() {
+        return expiry.copy();
+    }
+
+    /**
+     * Registra {@code call} para cancelarla si sigue en curso al vencer el plazo.
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> call) {
+        if (isExpired()) {
+            call.cancel(true);
+            return call;
+        }
+        outstanding.add(call);
+        call.whenComplete((value, ex) -> outstanding.remove(call));
+        if (isExpired()) {
+            call.cancel(true);
+        }
+        return call;
+    }
+
+    /**
+     * Vence el plazo en este momento y cancela las llamadas registradas que siguen en curso.
+     */
+    public void expire() {
+        expiry.complete(null);
+        for (CompletableFuture<?> call : outstanding) {
+            call.cancel(true);
+        }
+    }
+}
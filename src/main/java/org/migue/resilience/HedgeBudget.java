@@ -0,0 +1,44 @@
+package org.migue.resilience;
+
+/**
+ * Presupuesto global de peticiones duplicadas.
+ * Cada petición original aporta {@code ratio} fichas (hasta {@code maxTokens}) y cada
+ * duplicado consume una, de modo que la carga extra queda acotada a esa proporción.
+ */
+public class HedgeBudget {
+
+    private final double ratio;
+    private final double maxTokens;
+
+    private final Object lock = new Object();
+    private double tokens;
+    private long exhausted;
+
+    public HedgeBudget(double ratio, double maxTokens) {
+        this.ratio = ratio;
+        this.maxTokens = maxTokens;
+    }
+
+    public void recordRequest() {
+        synchronized (lock) {
+            tokens = Math.min(maxTokens, tokens + ratio);
+        }
+    }
+
+    public boolean tryAcquire() {
+        synchronized (lock) {
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            exhausted++;
+            return false;
+        }
+    }
+
+    public long exhausted() {
+        synchronized (lock) {
+            return exhausted;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package org.migue.resilience;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Peticiones duplicadas (hedging) para un servicio externo.
+ * Si la llamada no ha respondido tras el percentil configurado de sus latencias recientes,
+ * se lanza una segunda llamada idéntica y gana la primera respuesta correcta. Los
+ * duplicados se limitan con un {@link HedgeBudget} compartido. Las muestras de latencia son
+ * siempre de la llamada original: si se abandona porque gana el duplicado, cuenta lo que
+ * llevaba esperando, que es una cota inferior de su latencia. Así la ventana no se llena de
+ * duplicados rápidos que harían bajar el retardo cuanto más se duplica.
+ */
+public class RequestHedger {
+
+    // Cada cuántas muestras se recalcula el retardo para no ordenar la ventana en cada llamada
+    private static final int RECALCULATE_EVERY = 16;
+
+    private final String name;
+    private final double percentile;
+    private final int minSamples;
+    private final long minDelayMs;
+    private final HedgeBudget budget;
+
+    private final Object lock = new Object();
+    private final long[] latenciesMs;
+    private int samples;
+    private int next;
+    private int sinceRecalculation;
+    private long delayMs = -1;
+
+    private final LongAdder hedged = new LongAdder();
+    private final LongAdder hedgeWins = new LongAdder();
+
+    public RequestHedger(String name, double percentile, int windowSize, int minSamples,
+                         long minDelayMs, HedgeBudget budget) {
+        if (percentile <= 0 || percentile > 100 || windowSize < 1) {
+            throw new IllegalArgumentException("Configuración de hedging inválida para " + name);
+        }
+        this.name = name;
+        this.percentile = percentile;
+        this.latenciesMs = new long[windowSize];
+        this.minSamples = Math.min(minSamples, windowSize);
+        this.minDelayMs = minDelayMs;
+        this.budget = budget;
+    }
+
+    /**
+     * Ejecuta {@code attempt} y, si tarda más que el retardo actual y queda presupuesto,
+     * lo ejecuta una segunda vez. Mientras no haya muestras suficientes no se duplica.
+     */
+    public <T> CompletableFuture<T> hedge(Supplier<CompletableFuture<T>> attempt) {
+        budget.recordRequest();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger outstanding = new AtomicInteger(1);
+        start(attempt, result, outstanding, false);
+
+        long delay = hedgeDelayMs();
+        if (delay < 0) {
+            return result;
+        }
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS).execute(() -> {
+            if (result.isDone() || !budget.tryAcquire()) {
+                return;
+            }
+            hedged.increment();
+            outstanding.incrementAndGet();
+            start(attempt, result, outstanding, true);
+        });
+        return result;
+    }
+
+    private <T> void start(Supplier<CompletableFuture<T>> attempt, CompletableFuture<T> result,
+                           AtomicInteger outstanding, boolean secondary) {
+        long start = System.nanoTime();
+        CompletableFuture<T> call;
+        try {
+            call = attempt.get();
+        } catch (RuntimeException ex) {
+            call = CompletableFuture.failedFuture(ex);
+        }
+        call.whenComplete((value, ex) -> {
+            if (ex == null) {
+                if (!secondary) {
+                    record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                }
+                // Solo gana la llamada que completa el resultado
+                if (result.complete(value) && secondary) {
+                    hedgeWins.increment();
+                }
+            } else if (outstanding.decrementAndGet() == 0) {
+                // Solo se falla cuando ninguna de las llamadas puede responder ya
+                result.completeExceptionally(ex);
+            }
+        });
+        // La llamada perdedora se cancela en cuanto hay respuesta
+        CompletableFuture<T> attemptFuture = call;
+        result.whenComplete((value, ex) -> {
+            if (!secondary && !attemptFuture.isDone()) {
+                record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            }
+            attemptFuture.cancel(false);
+        });
+    }
+
+    private void record(long latencyMs) {
+        synchronized (lock) {
+            latenciesMs[next] = latencyMs;
+            next = (next + 1) % latenciesMs.length;
+            samples = Math.min(samples + 1, latenciesMs.length);
+            if (++sinceRecalculation >= RECALCULATE_EVERY || delayMs < 0) {
+                recalculate();
+            }
+        }
+    }
+
+    private void recalculate() {
+        sinceRecalculation = 0;
+        if (samples < minSamples) {
+            delayMs = -1;
+            return;
+        }
+        long[] sorted = Arrays.copyOf(latenciesMs, samples);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * samples) - 1;
+        delayMs = Math.max(minDelayMs, sorted[Math.max(0, index)]);
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Retardo actual antes de duplicar, o -1 si todavía no hay muestras suficientes.
+     */
+    public long hedgeDelayMs() {
+        synchronized (lock) {
+            return delayMs;
+        }
+    }
+
+    public long hedged() {
+        return hedged.sum();
+    }
+
+    public long hedgeWins() {
+        return hedgeWins.sum();
+    }
+}
@@ -1,88 +1,345 @@
 package org.migue.resource;
 
+import io.opentelemetry.context.Scope;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.inject.Inject;
 import jakarta.ws.rs.*;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.UriInfo;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.jboss.resteasy.reactive.RestStreamElementType;
+import org.migue.cache.ContentHashes;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.SerializedResponseCache;
+import org.migue.dto.PartialPosts;
+import org.migue.dto.PostCursor;
+import org.migue.dto.PostField;
+import org.migue.dto.PostQuery;
 import org.migue.dto.PostResponse;
 import org.migue.exception.ExternalServiceException;
+import org.migue.resilience.Deadline;
+import org.migue.service.AggregationMode;
 import org.migue.service.PostService;
+import org.migue.service.UpstreamGateway;
 import org.jboss.logging.Logger;
 
 import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
 
 @Path("/posts")
 public class PostResource {
 
     private static final Logger LOG = Logger.getLogger(PostResource.class);
 
+    private static final String NDJSON = "application/x-ndjson";
+
+    static final String NEXT_CURSOR = "X-Next-Cursor";
+    static final String PARTIAL_RESULTS = "X-Partial-Results";
+
     @Inject
     PostService postService;
 
+    @Inject
+    UpstreamGateway gateway;
+
+    @Inject
+    ContentHashes contentHashes;
+
+    @Inject
+    SerializedResponseCache serializedCache;
+
+    @Inject
+    MaterializedPostsView postsView;
+
+    @ConfigProperty(name = "app.request.deadline.ms", defaultValue = "0")
+    long requestDeadlineMs;
+
+/**
+ * Con {@code cursor} (vacío para la primera página) la paginación es por cursor en lugar de
+ * por {@code offset}: la respuesta lleva el cursor de la página siguiente en
+ * {@value #NEXT_CURSOR} y en un {@code Link rel="next"}, y no los lleva la última página.
+ * Si vence {@code app.request.deadline.ms} se responden los posts ya completos con
+ * {@value #PARTIAL_RESULTS}{@code : true}.
+ */
 @GET
 @Produces(MediaType.APPLICATION_JSON)
-public List<PostResponse> getAllPosts(
+public Uni<Response> getAllPosts(
         @QueryParam("authorId") Long authorId,
         @QueryParam("search") String search,
         @DefaultValue("100") @QueryParam("limit") int limit,
-        @DefaultValue("0") @QueryParam("offset") int offset) {
+        @DefaultValue("0") @QueryParam("offset") int offset,
+        @QueryParam("fields") String fields,
+        @QueryParam("cursor") String cursor,
+        @HeaderParam(HttpHeaders.IF_NONE_MATCH) String ifNoneMatch,
+        @HeaderParam(HttpHeaders.ACCEPT_ENCODING) String acceptEncoding,
+        @Context UriInfo uriInfo) {
+
+    LOG.infof("GET /posts llamada con authorId=%s search=%s limit=%d offset=%d fields=%s cursor=%s",
+            authorId, search, limit, offset, fields, cursor);
+
+    PostQuery query = buildQuery(authorId, search, limit, offset, fields);
+    // "?cursor=" puede llegar como null: se mira si el parámetro está presente
+    if (cursor != null || uriInfo.getQueryParameters().containsKey("cursor")) {
+        PostCursor after = parseCursor(cursor, offset);
+        return aggregated(Uni.createFrom().completionStage(() -> withDeadline(() -> postService.getPostsPageAsync(query, after))))
+                .onItem().transform(page -> {
+                    Response.ResponseBuilder builder = postsResponse(page.posts(), ifNoneMatch, acceptEncoding);
+                    if (page.nextCursor() != null) {
+                        builder.header(NEXT_CURSOR, page.nextCursor())
+                                .link(uriInfo.getRequestUriBuilder()
+                                        .replaceQueryParam("cursor", page.nextCursor())
+                                        .replaceQueryParam("offset")
+                                        .build(), "next");
+                    }
+                    return builder.build();
+                });
+    }
+
+    // La agregación no bloquea el hilo de la petición
+    return aggregated(Uni.createFrom().completionStage(() -> withDeadline(() -> postService.getPostsAsync(query))))
+            .onItem().transform(posts -> postsResponse(posts, ifNoneMatch, acceptEncoding).build());
+}
+
+    // El plazo arranca con la agregación y viaja en el contexto hasta cada llamada externa
+    private <T> CompletionStage<T> withDeadline(Supplier<CompletionStage<T>> call) {
+        if (requestDeadlineMs <= 0) {
+            return call.get();
+        }
+        try (Scope ignored = Deadline.after(requestDeadlineMs).makeCurrent()) {
+            return call.get();
+        }
+    }
+
+    private <T> Uni<T> aggregated(Uni<T> result) {
+        if (gateway.mode() == AggregationMode.VIRTUAL_THREADS) {
+            result = result.runSubscriptionOn(gateway.requestExecutor());
+        }
+        return result.onFailure(e -> !(e instanceof jakarta.ws.rs.WebApplicationException)).transform(e -> {
+            LOG.error("Error al obtener los posts con detalles: " + e.getMessage(), e);
+            return new ExternalServiceException("Error al obtener los posts desde el servicio externo", e);
+        });
+    }
 
-    LOG.infof("GET /posts llamada con authorId=%s search=%s limit=%d offset=%d",
-            authorId, search, limit, offset);
+    private Response.ResponseBuilder postsResponse(List<PostResponse> posts, String ifNoneMatch, String acceptEncoding) {
+        boolean partial = PartialPosts.isPartial(posts);
+        if (!partial && (posts == null || posts.isEmpty())) {
+            LOG.warn("No se encontraron posts");
+            throw new jakarta.ws.rs.NotFoundException("No se encontraron posts");
+        }
+        // Si el cliente ya tiene esta versión se responde 304 sin cuerpo
+        String etag = contentHashes.etagOf(posts);
+        if (matchesETag(ifNoneMatch, etag)) {
+            LOG.debugf("GET /posts sin cambios (ETag %s)", etag);
+            return withStaleness(Response.notModified()
+                    .header(HttpHeaders.ETAG, etag)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING));
+        }
+        if (partial) {
+            LOG.warnf("GET /posts retornó %d resultados parciales por plazo agotado", posts.size());
+            return withStaleness(serialized(posts, etag, acceptEncoding))
+                    .header(PARTIAL_RESULTS, "true")
+                    .header(HttpHeaders.CACHE_CONTROL, "no-store");
+        }
+        LOG.infof("GET /posts retornó %d resultados", posts.size());
+        return withStaleness(serialized(posts, etag, acceptEncoding));
+    }
 
-    try {
-        if (authorId != null && authorId <= 0) {
-            LOG.warn("authorId inválido");
-            throw new jakarta.ws.rs.BadRequestException("authorId inválido");
+    // Un cursor vacío pide la primera página; no se puede combinar con offset
+    private static PostCursor parseCursor(String cursor, int offset) {
+        if (offset > 0) {
+            LOG.warn("cursor y offset a la vez");
+            throw new jakarta.ws.rs.BadRequestException("cursor y offset no se pueden combinar");
         }
-        if (limit <= 0 || limit > 500) {
-            LOG.warn("limit fuera de rango");
-            throw new jakarta.ws.rs.BadRequestException("limit debe estar entre 1 y 500");
+        if (cursor == null || cursor.isBlank()) {
+            return null;
         }
-        if (offset < 0) {
-            LOG.warn("offset inválido");
-            throw new jakarta.ws.rs.BadRequestException("offset no puede ser negativo");
+        try {
+            return PostCursor.decode(cursor.trim());
+        } catch (IllegalArgumentException e) {
+            LOG.warn("cursor inválido");
+            throw new jakarta.ws.rs.BadRequestException(e.getMessage());
         }
+    }
+
+    /**
+     * Mismos parámetros que GET /posts, pero cada post se escribe como una línea NDJSON
+     * en cuanto sus comentarios y su autor están resueltos.
+     */
+    @GET
+    @Path("/stream")
+    @Produces(NDJSON)
+    @RestStreamElementType(MediaType.APPLICATION_JSON)
+    public Multi<PostResponse> streamPostsNdjson(
+            @QueryParam("authorId") Long authorId,
+            @QueryParam("search") String search,
+            @DefaultValue("100") @QueryParam("limit") int limit,
+            @DefaultValue("0") @QueryParam("offset") int offset,
+            @QueryParam("fields") String fields) {
+        return streamPosts(authorId, search, limit, offset, fields);
+    }
+
+    /**
+     * Variante de {@link #streamPostsNdjson} que escribe un array JSON por chunks.
+     */
+    @GET
+    @Path("/stream")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Multi<PostResponse> streamPostsJsonArray(
+            @QueryParam("authorId") Long authorId,
+            @QueryParam("search") String search,
+            @DefaultValue("100") @QueryParam("limit") int limit,
+            @DefaultValue("0") @QueryParam("offset") int offset,
+            @QueryParam("fields") String fields) {
+        return streamPosts(authorId, search, limit, offset, fields);
+    }
 
-        if (search != null) {
-            search = search.trim();
-            if (search.length() > 200) {
-                LOG.warn("search demasiado largo");
-                throw new jakarta.ws.rs.BadRequestException("search demasiado largo");
+    private Multi<PostResponse> streamPosts(Long authorId, String search, int limit, int offset, String fields) {
+        LOG.infof("GET /posts/stream llamada con authorId=%s search=%s limit=%d offset=%d fields=%s",
+                authorId, search, limit, offset, fields);
+
+        PostQuery query = buildQuery(authorId, search, limit, offset, fields);
+
+        return postService.streamPosts(query)
+                .onFailure(e -> !(e instanceof jakarta.ws.rs.WebApplicationException)).transform(e -> {
+                    LOG.error("Error en el streaming de posts: " + e.getMessage(), e);
+                    return new ExternalServiceException("Error al obtener los posts desde el servicio externo", e);
+                });
+    }
+
+    // Sirve los bytes ya serializados (y comprimidos si el cliente acepta gzip) de la versión actual
+    private Response.ResponseBuilder serialized(List<PostResponse> posts, String etag, String acceptEncoding) {
+        if (!serializedCache.isEnabled()) {
+            return Response.ok(posts).header(HttpHeaders.ETAG, etag);
+        }
+        SerializedResponseCache.Variants variants = serializedCache.get(etag, posts);
+        Response.ResponseBuilder builder = variants.gzip() != null && acceptsGzip(acceptEncoding)
+                ? Response.ok(variants.gzip(), MediaType.APPLICATION_JSON_TYPE).header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                : Response.ok(variants.identity(), MediaType.APPLICATION_JSON_TYPE);
+        return builder
+                .header(HttpHeaders.ETAG, etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+    }
+
+    // Datos de la vista sin confirmar con el servicio externo: se indica que son obsoletos y su antigüedad
+    private Response.ResponseBuilder withStaleness(Response.ResponseBuilder builder) {
+        MaterializedPostsView.Snapshot snapshot = postsView.current();
+        if (snapshot != null && postsView.isStale()) {
+            long ageSeconds = Math.max(0, (System.currentTimeMillis() - snapshot.builtAtMillis()) / 1000);
+            builder.header("Age", ageSeconds).header("Warning", "110 - \"Response is Stale\"");
+        }
+        return builder;
+    }
+
+    // gzip se acepta si aparece con q > 0, o si no aparece y "*" tiene q > 0
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean gzip = null;
+        boolean wildcard = false;
+        for (String part : acceptEncoding.split(",")) {
+            String[] tokens = part.trim().split(";");
+            String coding = tokens[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = true;
+            for (int i = 1; i < tokens.length; i++) {
+                String param = tokens[i].trim().toLowerCase(Locale.ROOT);
+                if (param.startsWith("q=")) {
+                    try {
+                        accepted = Double.parseDouble(param.substring(2)) > 0;
+                    } catch (NumberFormatException e) {
+                        accepted = false;
+                    }
+                }
             }
-            // Eliminar caracteres potencialmente peligrosos
-            search = search.replaceAll("[<>\\p{Cntrl}]", "");
-            if (search.isEmpty()) {
-                search = null;
+            if (coding.equals("gzip")) {
+                gzip = accepted;
+            } else if (coding.equals("*")) {
+                wildcard = accepted;
             }
-            // Podria ser una mejora futura, que filtre con los parametros.
-            if (authorId != null || search != null) {
-                LOG.warn("Parámetros de filtrado recibidos pero no implementados: authorId=" +
-                        authorId + ", search=" + search);
+        }
+        return gzip != null ? gzip : wildcard;
+    }
+
+    // If-None-Match usa comparación débil: se ignora el prefijo W/ y se admite "*"
+    private static boolean matchesETag(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = candidate.trim();
+            if (value.startsWith("W/")) {
+                value = value.substring(2);
+            }
+            if (value.equals("*") || value.equals(etag)) {
+                return true;
             }
         }
+        return false;
+    }
 
-        List<PostResponse> posts = postService.getPostsWithDetails();
+    private PostQuery buildQuery(Long authorId, String search, int limit, int offset, String fields) {
+        try {
+            if (authorId != null && authorId <= 0) {
+                LOG.warn("authorId inválido");
+                throw new jakarta.ws.rs.BadRequestException("authorId inválido");
+            }
+            if (limit <= 0 || limit > 500) {
+                LOG.warn("limit fuera de rango");
+                throw new jakarta.ws.rs.BadRequestException("limit debe estar entre 1 y 500");
+            }
+            if (offset < 0) {
+                LOG.warn("offset inválido");
+                throw new jakarta.ws.rs.BadRequestException("offset no puede ser negativo");
+            }
 
-        if (posts == null || posts.isEmpty()) {
-            LOG.warn("No se encontraron posts");
-            throw new jakarta.ws.rs.NotFoundException("No se encontraron posts");
-        }
-        LOG.infof("GET /posts retornó %d resultados", posts.size());
-        return posts;
+            if (search != null) {
+                search = search.trim();
+                if (search.length() > 200) {
+                    LOG.warn("search demasiado largo");
+                    throw new jakarta.ws.rs.BadRequestException("search demasiado largo");
+                }
+                // Eliminar caracteres potencialmente peligrosos
+                search = search.replaceAll("[<>\\p{Cntrl}]", "");
+                if (search.isEmpty()) {
+                    search = null;
+                }
+            }
 
+            Set<PostField> selectedFields;
+            try {
+                selectedFields = PostField.parse(fields);
+            } catch (IllegalArgumentException e) {
+                LOG.warn("fields inválido: " + e.getMessage());
+                throw new jakarta.ws.rs.BadRequestException(e.getMessage());
+            }
 
-    } catch (jakarta.ws.rs.WebApplicationException wae) {
-        throw wae;
-    } catch (Exception e) {
-        LOG.error("Error al obtener los posts con detalles: " + e.getMessage(), e);
-        throw new ExternalServiceException("Error al obtener los posts desde el servicio externo", e);
+            // El filtrado y la paginación se aplican antes de enriquecer los posts
+            return new PostQuery(authorId, search, limit, offset, selectedFields);
+
+        } catch (jakarta.ws.rs.WebApplicationException wae) {
+            throw wae;
+        } catch (Exception e) {
+            LOG.error("Error al obtener los posts con detalles: " + e.getMessage(), e);
+            throw new ExternalServiceException("Error al obtener los posts desde el servicio externo", e);
+        }
     }
-}
 
     @DELETE
     @Path("/{id}")
-    public Response deletePost(@PathParam("id") Long postId) {
+    public Uni<Response> deletePost(@PathParam("id") Long postId) {
+        // El borrado es bloqueante: se ejecuta en el pool de trabajo o en un hilo virtual según el modo
+        return Uni.createFrom().item(() -> deletePostBlocking(postId))
+                .runSubscriptionOn(gateway.requestExecutor());
+    }
+
+    private Response deletePostBlocking(Long postId) {
         LOG.infof("DELETE /posts llamada con id=%s", postId);
         try {
             // Validaciones básicas de entrada
@@ -0,0 +1,150 @@
+package org.migue.resource;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.GET;
+import jakarta.ws.rs.Path;
+import jakarta.ws.rs.Produces;
+import jakarta.ws.rs.core.MediaType;
+import org.migue.cache.AggregatedPostsCache;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.SerializedResponseCache;
+import org.migue.cache.SingleFlight;
+import org.migue.cache.UserCache;
+import org.migue.dto.CacheStatsDto;
+import org.migue.dto.CoalescingStatsDto;
+import org.migue.dto.HedgeStatsDto;
+import org.migue.dto.LimiterStatsDto;
+import org.migue.dto.ResultCacheStatsDto;
+import org.migue.dto.ViewStatsDto;
+import org.migue.service.PostService;
+import org.migue.service.UpstreamGateway;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Path("/stats")
+public class StatsResource {
+
+    @Inject
+    UserCache userCache;
+
+    @Inject
+    AggregatedPostsCache postsCache;
+
+    @Inject
+    MaterializedPostsView postsView;
+
+    @Inject
+    SerializedResponseCache serializedCache;
+
+    @Inject
+    UpstreamGateway gateway;
+
+    @Inject
+    PostService postService;
+
+    @GET
+    @Path("/user-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CacheStatsDto getUserCacheStats() {
+        CacheStats stats = userCache.stats();
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.size = userCache.size();
+        dto.hits = stats.hitCount();
+        dto.misses = stats.missCount();
+        dto.hitRate = stats.hitRate();
+        dto.evictions = stats.evictionCount();
+        dto.loadFailures = stats.loadFailureCount();
+        return dto;
+    }
+
+    @GET
+    @Path("/serialized-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CacheStatsDto getSerializedCacheStats() {
+        CacheStats stats = serializedCache.stats();
+        CacheStatsDto dto = new CacheStatsDto();
+        dto.size = serializedCache.size();
+        dto.hits = stats.hitCount();
+        dto.misses = stats.missCount();
+        dto.hitRate = stats.hitRate();
+        dto.evictions = stats.evictionCount();
+        dto.loadFailures = stats.loadFailureCount();
+        return dto;
+    }
+
+    @GET
+    @Path("/posts-cache")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ResultCacheStatsDto getPostsCacheStats() {
+        ResultCacheStatsDto dto = new ResultCacheStatsDto();
+        dto.size = postsCache.size();
+        dto.freshHits = postsCache.freshHits();
+        dto.staleHits = postsCache.staleHits();
+        dto.misses = postsCache.misses();
+        dto.refreshes = postsCache.refreshes();
+        dto.refreshFailures = postsCache.refreshFailures();
+        return dto;
+    }
+
+    @GET
+    @Path("/limiters")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, LimiterStatsDto> getLimiterStats() {
+        Map<String, LimiterStatsDto> stats = new LinkedHashMap<>();
+        gateway.limiters().forEach((downstream, limiter) -> {
+            LimiterStatsDto dto = new LimiterStatsDto();
+            dto.limit = limiter.limit();
+            dto.inFlight = limiter.inFlight();
+            dto.queueDepth = limiter.queueDepth();
+            dto.rejected = limiter.rejected();
+            stats.put(downstream.configName(), dto);
+        });
+        return stats;
+    }
+
+    @GET
+    @Path("/hedging")
+    @Produces(MediaType.APPLICATION_JSON)
+    public Map<String, HedgeStatsDto> getHedgingStats() {
+        Map<String, HedgeStatsDto> stats = new LinkedHashMap<>();
+        gateway.hedgers().forEach((downstream, hedger) -> {
+            HedgeStatsDto dto = new HedgeStatsDto();
+            dto.hedgeDelayMs = hedger.hedgeDelayMs();
+            dto.hedged = hedger.hedged();
+            dto.hedgeWins = hedger.hedgeWins();
+            dto.budgetExhausted = gateway.hedgeBudget().exhausted();
+            stats.put(downstream.configName(), dto);
+        });
+        return stats;
+    }
+
+    @GET
+    @Path("/coalescing")
+    @Produces(MediaType.APPLICATION_JSON)
+    public CoalescingStatsDto getCoalescingStats() {
+        SingleFlight<?, ?> inFlight = postService.inFlightQueries();
+        CoalescingStatsDto dto = new CoalescingStatsDto();
+        dto.inFlight = inFlight.inFlight();
+        dto.executions = inFlight.executions();
+        dto.coalesced = inFlight.coalesced();
+        return dto;
+    }
+
+    @GET
+    @Path("/posts-view")
+    @Produces(MediaType.APPLICATION_JSON)
+    public ViewStatsDto getPostsViewStats() {
+        MaterializedPostsView.Snapshot snapshot = postsView.current();
+        ViewStatsDto dto = new ViewStatsDto();
+        dto.ready = snapshot != null;
+        if (snapshot != null) {
+            dto.version = snapshot.version();
+            dto.posts = snapshot.posts().size();
+            dto.ageMs = System.currentTimeMillis() - snapshot.builtAtMillis();
+            dto.stale = postsView.isStale();
+        }
+        return dto;
+    }
+}
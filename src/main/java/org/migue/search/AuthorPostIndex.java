@@ -0,0 +1,144 @@
+package org.migue.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.migue.dto.PostDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Índice secundario autor -> posts por cada lista de posts.
+ * Guarda, para cada userId, las posiciones de sus posts en la lista usando arrays
+ * primitivos (tabla hash de direccionamiento abierto con claves {@code long}), de modo
+ * que filtrar por autor cuesta lo mismo que el número de posts del autor. El índice se
+ * identifica por la instancia de la lista (la de una snapshot de la vista o la reutilizada
+ * tras un 304), así que una consulta no recorre la lista para saber si ha cambiado.
+ */
+@ApplicationScoped
+public class AuthorPostIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AuthorPostIndex.class);
+
+    // Listas vivas a la vez: la actual, las snapshots que conservan los cursores y la del servicio externo
+    private static final int MAX_INDEXES = 8;
+
+    // Claves débiles: se comparan por identidad y el índice cae con su lista
+    private final Cache<List<PostDto>, Snapshot> snapshots = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_INDEXES)
+            .build();
+    private final LongAdder builds = new LongAdder();
+
+    /**
+     * Posts de {@code authorId} en el orden de {@code posts}. El índice se construye la
+     * primera vez que se consulta esa lista; la lista no debe modificarse después.
+     */
+    public List<PostDto> postsByAuthor(List<PostDto> posts, long authorId) {
+        Snapshot current = snapshots.get(posts, list -> {
+            Snapshot built = Snapshot.build(list);
+            builds.increment();
+            LOG.debug("Índice de autores construido: {} posts, {} autores", list.size(), built.authors);
+            return built;
+        });
+
+        int slot = current.find(authorId);
+        if (slot < 0) {
+            return List.of();
+        }
+        List<PostDto> result = new ArrayList<>(current.counts[slot]);
+        for (int i = current.offsets[slot], end = i + current.counts[slot]; i < end; i++) {
+            result.add(posts.get(current.positions[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Índices construidos desde el arranque.
+     */
+    long builds() {
+        return builds.sum();
+    }
+
+    private static final class Snapshot {
+
+        final long[] keys;
+        final boolean[] used;
+        final int[] offsets;
+        final int[] counts;
+        int[] positions = new int[0];
+        int authors;
+
+        private Snapshot(int capacity) {
+            this.keys = new long[capacity];
+            this.used = new boolean[capacity];
+            this.offsets = new int[capacity];
+            this.counts = new int[capacity];
+        }
+
+        static Snapshot build(List<PostDto> posts) {
+            // Capacidad potencia de dos con ocupación máxima del 50 %
+            int capacity = Integer.highestOneBit(Math.max(2, posts.size() * 2 - 1)) << 1;
+            Snapshot snapshot = new Snapshot(capacity);
+
+            int indexed = 0;
+            for (PostDto post : posts) {
+                if (post != null && post.userId != null) {
+                    snapshot.counts[snapshot.insert(post.userId)]++;
+                    indexed++;
+                }
+            }
+
+            int offset = 0;
+            for (int slot = 0; slot < capacity; slot++) {
+                snapshot.offsets[slot] = offset;
+                offset += snapshot.counts[slot];
+            }
+
+            int[] filled = new int[capacity];
+            snapshot.positions = new int[indexed];
+            for (int position = 0; position < posts.size(); position++) {
+                PostDto post = posts.get(position);
+                if (post != null && post.userId != null) {
+                    int slot = snapshot.find(post.userId);
+                    snapshot.positions[snapshot.offsets[slot] + filled[slot]++] = position;
+                }
+            }
+            return snapshot;
+        }
+
+        int find(long key) {
+            int mask = keys.length - 1;
+            for (int slot = mix(key) & mask; used[slot]; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+
+        private int insert(long key) {
+            int mask = keys.length - 1;
+            int slot = mix(key) & mask;
+            while (used[slot]) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            used[slot] = true;
+            keys[slot] = key;
+            authors++;
+            return slot;
+        }
+
+        private static int mix(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
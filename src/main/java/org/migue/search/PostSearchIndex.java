@@ -0,0 +1,177 @@
+package org.migue.search;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.enterprise.context.ApplicationScoped;
+import org.migue.dto.PostDto;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Índice invertido en memoria sobre el título y el cuerpo de los posts.
+ * Los textos se dividen en términos sin tildes ni mayúsculas; cada término de la búsqueda
+ * se compara como prefijo y todos deben aparecer en el post. Los resultados se ordenan
+ * por relevancia (frecuencia ponderada por idf, con más peso en el título).
+ * <p>
+ * Cada lista de posts (la de una snapshot de la vista, o la lista del servicio externo que
+ * se reutiliza tras un 304) tiene su propio índice inmutable, identificado por la propia
+ * instancia de la lista: buscar no recorre la lista, y peticiones simultáneas sobre listas
+ * distintas no se pisan. Al construir un índice nuevo se reaprovechan los términos de los
+ * posts sin cambios del anterior.
+ */
+@ApplicationScoped
+public class PostSearchIndex {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PostSearchIndex.class);
+
+    private static final int TITLE_WEIGHT = 3;
+    private static final int BODY_WEIGHT = 1;
+    // Una coincidencia por prefijo puntúa menos que el término exacto
+    private static final double PREFIX_FACTOR = 0.5;
+    // Listas vivas a la vez: la actual, las snapshots que conservan los cursores y la del servicio externo
+    private static final int MAX_INDEXES = 8;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    // Claves débiles: se comparan por identidad y el índice cae con su lista
+    private final Cache<List<PostDto>, Index> indexes = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(MAX_INDEXES)
+            .build();
+    private final LongAdder builds = new LongAdder();
+    private volatile Index latest = Index.EMPTY;
+
+    /**
+     * Posts de {@code posts} que contienen todos los términos de {@code query}, del más al
+     * menos relevante; a igual relevancia, por id ascendente. El índice de la lista se
+     * construye la primera vez que se busca en ella.
+     */
+    public List<PostDto> search(List<PostDto> posts, String query) {
+        List<String> terms = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        Index index = indexes.get(posts, this::build);
+
+        Map<Long, Double> scores = null;
+        for (String term : terms) {
+            Map<Long, Double> termScores = index.score(term);
+            if (scores == null) {
+                scores = termScores;
+            } else {
+                scores.keySet().retainAll(termScores.keySet());
+                scores.replaceAll((id, score) -> score + termScores.get(id));
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        List<Map.Entry<Long, Double>> ranked = new ArrayList<>(scores.entrySet());
+        ranked.sort(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                .thenComparing(Map.Entry.comparingByKey()));
+        List<PostDto> result = new ArrayList<>(ranked.size());
+        ranked.forEach(entry -> result.add(index.documents.get(entry.getKey()).post()));
+        return result;
+    }
+
+    /**
+     * Índices construidos desde el arranque.
+     */
+    long builds() {
+        return builds.sum();
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private Index build(List<PostDto> posts) {
+        Index previous = latest;
+        NavigableMap<String, Map<Long, Integer>> postings = new TreeMap<>();
+        Map<Long, Document> documents = new HashMap<>();
+        int reused = 0;
+        for (PostDto post : posts) {
+            if (post == null || post.id == null || documents.containsKey(post.id)) {
+                continue;
+            }
+            int contentHash = contentHash(post);
+            Document known = previous.documents.get(post.id);
+            Map<String, Integer> weights;
+            if (known != null && known.contentHash() == contentHash) {
+                weights = known.weights();
+                reused++;
+            } else {
+                weights = weights(post);
+            }
+            documents.put(post.id, new Document(post, contentHash, weights));
+            weights.forEach((term, weight) -> postings.computeIfAbsent(term, t -> new HashMap<>()).put(post.id, weight));
+        }
+
+        Index index = new Index(postings, documents);
+        latest = index;
+        builds.increment();
+        LOG.debug("Índice de búsqueda construido: {} posts ({} sin cambios), {} términos",
+                documents.size(), reused, postings.size());
+        return index;
+    }
+
+    private static Map<String, Integer> weights(PostDto post) {
+        Map<String, Integer> weights = new HashMap<>();
+        tokenize(post.title).forEach(term -> weights.merge(term, TITLE_WEIGHT, Integer::sum));
+        tokenize(post.body).forEach(term -> weights.merge(term, BODY_WEIGHT, Integer::sum));
+        return weights;
+    }
+
+    private static int contentHash(PostDto post) {
+        return Objects.hash(post.title, post.body);
+    }
+
+    private record Document(PostDto post, int contentHash, Map<String, Integer> weights) {
+    }
+
+    // Inmutable una vez construido: se consulta sin bloqueos
+    private record Index(NavigableMap<String, Map<Long, Integer>> postings, Map<Long, Document> documents) {
+
+        static final Index EMPTY = new Index(new TreeMap<>(), Map.of());
+
+        Map<Long, Double> score(String prefix) {
+            Map<Long, Double> scores = new HashMap<>();
+            int totalDocuments = documents.size();
+            // Todos los términos que empiezan por el prefijo quedan en este rango del mapa ordenado
+            for (Map.Entry<String, Map<Long, Integer>> entry
+                    : postings.subMap(prefix, true, prefix + Character.MAX_VALUE, false).entrySet()) {
+                Map<Long, Integer> docs = entry.getValue();
+                double idf = Math.log(1.0 + (double) totalDocuments / docs.size());
+                double factor = entry.getKey().equals(prefix) ? 1.0 : PREFIX_FACTOR;
+                docs.forEach((id, weight) -> scores.merge(id, weight * idf * factor, Double::sum));
+            }
+            return scores;
+        }
+    }
+}
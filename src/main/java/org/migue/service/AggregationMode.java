@@ -0,0 +1,19 @@
+package org.migue.service;
+
+/**
+ * Modo de ejecución de las llamadas a los servicios externos ({@code app.aggregation.mode}).
+ */
+public enum AggregationMode {
+
+    /** Clientes bloqueantes ejecutados en el pool de trabajo inyectado. */
+    WORKER,
+
+    /** Clientes Mutiny no bloqueantes; no ocupa hilos mientras la llamada está en curso. */
+    REACTIVE,
+
+    /**
+     * Clientes bloqueantes en un hilo virtual por llamada, con un semáforo por servicio
+     * externo que acota cuántas llamadas simultáneas puede lanzar la agregación.
+     */
+    VIRTUAL_THREADS
+}
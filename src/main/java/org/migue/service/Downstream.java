@@ -0,0 +1,22 @@
+package org.migue.service;
+
+/**
+ * Servicios externos consultados por la agregación. El nombre en minúsculas se usa
+ * como sufijo de las propiedades de configuración por servicio.
+ */
+public enum Downstream {
+
+    POSTS("posts"),
+    COMMENTS("comments"),
+    USERS("users");
+
+    private final String configName;
+
+    Downstream(String configName) {
+        this.configName = configName;
+    }
+
+    public String configName() {
+        return configName;
+    }
+}
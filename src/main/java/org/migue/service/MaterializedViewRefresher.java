@@ -0,0 +1,156 @@
+package org.migue.service;
+
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.enterprise.event.Observes;
+import jakarta.inject.Inject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.PostSnapshotStore;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Mantiene {@link MaterializedPostsView} al día: la carga al arrancar y la refresca cada
+ * {@code app.view.refresh-interval}. En cada refresco solo se vuelven a enriquecer los posts
+ * nuevos o modificados y los que se construyeron con algún respaldo; cada
+ * {@code app.view.full-refresh-every} refrescos se enriquecen todos para recoger cambios en
+ * comentarios y autores. Con {@code app.snapshot.enabled}
+ * cada snapshot publicada se guarda en disco y al arrancar se restaura la última guardada,
+ * que se sirve como obsoleta hasta el primer refresco correcto.
+ */
+@ApplicationScoped
+public class MaterializedViewRefresher {
+
+    private static final Logger LOG = LoggerFactory.getLogger(MaterializedViewRefresher.class);
+
+    @Inject
+    UpstreamGateway gateway;
+
+    @Inject
+    PostService postService;
+
+    @Inject
+    MaterializedPostsView view;
+
+    @Inject
+    PostSnapshotStore snapshotStore;
+
+    @ConfigProperty(name = "app.view.enabled", defaultValue = "false")
+    boolean enabled;
+
+    @ConfigProperty(name = "app.view.full-refresh-every", defaultValue = "10")
+    int fullRefreshEvery;
+
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private long refreshes;
+
+    void onStart(@Observes StartupEvent event) {
+        if (enabled) {
+            snapshotStore.load().ifPresent(snapshot -> {
+                view.restore(snapshot);
+                LOG.info("Vista materializada v{} restaurada desde disco: {} posts de hace {} s",
+                        snapshot.version(), snapshot.posts().size(),
+                        (System.currentTimeMillis() - snapshot.builtAtMillis()) / 1000);
+            });
+            LOG.info("Precargando la vista materializada de posts");
+            refresh();
+        }
+    }
+
+    @Scheduled(every = "${app.view.refresh-interval:60s}", delayed = "${app.view.refresh-interval:60s}")
+    void scheduledRefresh() {
+        if (enabled) {
+            refresh();
+        }
+    }
+
+    /**
+     * Lanza un refresco si no hay otro en curso. El futuro se completa cuando la nueva
+     * snapshot está publicada; si falla, se conserva la anterior.
+     */
+    public CompletableFuture<Void> refresh() {
+        if (!refreshing.compareAndSet(false, true)) {
+            LOG.debug("Refresco de la vista materializada ya en curso");
+            return CompletableFuture.completedFuture(null);
+        }
+
+        long startTime = System.currentTimeMillis();
+        CompletableFuture<List<PostDto>> fetched;
+        try {
+            fetched = gateway.getPosts();
+        } catch (RuntimeException ex) {
+            // Un fallo síncrono pasa por el mismo camino para liberar el refresco
+            fetched = CompletableFuture.failedFuture(ex);
+        }
+        return fetched
+                .thenCompose(this::rebuild)
+                .whenComplete((snapshot, ex) -> {
+                    refreshing.set(false);
+                    if (ex != null) {
+                        LOG.error("Fallo el refresco de la vista materializada, se mantiene la anterior", ex);
+                        view.markStale();
+                        return;
+                    }
+                    view.publish(snapshot);
+                    LOG.info("Vista materializada v{} publicada: {} posts en {} ms",
+                            snapshot.version(), snapshot.posts().size(), System.currentTimeMillis() - startTime);
+                    snapshotStore.save(snapshot);
+                })
+                .thenApply(snapshot -> null);
+    }
+
+    private CompletableFuture<MaterializedPostsView.Snapshot> rebuild(List<PostDto> fetched) {
+        MaterializedPostsView.Snapshot previous = view.current();
+        // Tras restaurar desde disco o un fallo, comentarios y autores pueden haber cambiado
+        boolean full = previous == null || view.isStale() || ++refreshes % Math.max(1, fullRefreshEvery) == 0;
+
+        List<PostDto> posts = new ArrayList<>();
+        Map<Long, Integer> hashes = new HashMap<>();
+        Map<Long, PostResponse> responses = new HashMap<>();
+        List<PostDto> changed = new ArrayList<>();
+
+        for (PostDto post : fetched == null ? List.<PostDto>of() : fetched) {
+            if (post == null || post.id == null || hashes.containsKey(post.id)) {
+                continue;
+            }
+            int hash = contentHash(post);
+            posts.add(post);
+            hashes.put(post.id, hash);
+
+            PostResponse unchanged = full || !Objects.equals(previous.hashes().get(post.id), hash)
+                    ? null
+                    : previous.responses().get(post.id);
+            // Las respuestas construidas con respaldos se reintentan en cada refresco
+            if (unchanged != null && !unchanged.degraded) {
+                responses.put(post.id, unchanged);
+            } else {
+                changed.add(post);
+            }
+        }
+
+        LOG.debug("Refresco de la vista: {} posts, {} a enriquecer", posts.size(), changed.size());
+        long version = previous == null ? 1 : previous.version() + 1;
+        return postService.enrichPosts(changed).thenApply(enriched -> {
+            for (PostResponse response : enriched) {
+                responses.put(response.id, response);
+            }
+            return new MaterializedPostsView.Snapshot(posts, responses, hashes, version, System.currentTimeMillis());
+        });
+    }
+
+    private static int contentHash(PostDto post) {
+        return Objects.hash(post.id, post.userId, post.title, post.body);
+    }
+}
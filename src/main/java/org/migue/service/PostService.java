@@ -1,33 +1,66 @@
 package org.migue.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import io.smallrye.mutiny.Multi;
+import io.smallrye.mutiny.Uni;
 import jakarta.enterprise.context.ApplicationScoped;
 import jakarta.inject.Inject;
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
 import jakarta.ws.rs.NotFoundException;
 import jakarta.ws.rs.core.Response;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
-import org.migue.client.CommentClient;
+import org.migue.cache.AggregatedPostsCache;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.SingleFlight;
+import org.migue.cache.UserCache;
 import org.migue.client.PostClient;
-import org.migue.client.UserClient;
 import org.migue.dto.CommentDto;
+import org.migue.dto.PartialPosts;
+import org.migue.dto.PostCursor;
 import org.migue.dto.PostDto;
+import org.migue.dto.PostField;
+import org.migue.dto.PostPage;
+import org.migue.dto.PostQuery;
 import org.migue.dto.PostResponse;
 import org.migue.dto.UserDto;
 import org.migue.exception.ExternalServiceException;
 import org.migue.exception.ResourceNotFoundException;
+import org.migue.metrics.AggregationMetrics;
+import org.migue.resilience.Deadline;
+import org.migue.search.AuthorPostIndex;
+import org.migue.search.PostSearchIndex;
+import org.migue.tracing.AggregationTracing;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import static org.migue.utils.PostServiceConstants.*;
 
 @ApplicationScoped
@@ -35,21 +68,43 @@ public class PostService {
 
     private static final Logger LOG = LoggerFactory.getLogger(PostService.class);
 
+    // Versión de los cursores emitidos sobre la lista en vivo, sin vista materializada
+    private static final long LIVE_VERSION = 0;
+
+    // Comentarios de respaldo tras un error; se distinguen por identidad de un post sin comentarios
+    private static final List<CommentDto> FALLBACK_COMMENTS = Collections.unmodifiableList(new ArrayList<>());
+
 
     @Inject
     @RestClient
     PostClient postClient;
 
     @Inject
-    @RestClient
-    CommentClient commentClient;
+    UpstreamGateway gateway;
 
     @Inject
-    @RestClient
-    UserClient userClient;
+    Executor executor;
 
     @Inject
-    Executor executor;
+    UserCache userCache;
+
+    @Inject
+    AggregatedPostsCache postsCache;
+
+    @Inject
+    MaterializedPostsView postsView;
+
+    @Inject
+    PostSearchIndex searchIndex;
+
+    @Inject
+    AuthorPostIndex authorIndex;
+
+    @Inject
+    AggregationMetrics metrics;
+
+    @Inject
+    AggregationTracing tracing;
 
     // Configuraciones externalizadas
     @ConfigProperty(name = "app.external.timeout.ms", defaultValue = "5000")
@@ -58,138 +113,708 @@ public class PostService {
     @ConfigProperty(name = "app.external.max-posts", defaultValue = "1000")
     int maxPostsLimit;
 
-    public List<PostResponse> getPostsWithDetails() {
-        LOG.debug("Iniciando obtención de posts con detalles");
+    @ConfigProperty(name = "app.comments.bulk.enabled", defaultValue = "true")
+    boolean bulkCommentsEnabled;
+
+    @ConfigProperty(name = "app.comments.bulk.max-filter-ids", defaultValue = "50")
+    int bulkMaxFilterIds;
+
+    @ConfigProperty(name = "app.users.batch.enabled", defaultValue = "true")
+    boolean batchUsersEnabled;
+
+    @ConfigProperty(name = "app.users.batch.size", defaultValue = "25")
+    int userBatchSize;
+
+    @ConfigProperty(name = "app.users.batch.fetch-all", defaultValue = "false")
+    boolean fetchAllUsers;
 
-        long startTime = System.currentTimeMillis();
+    @ConfigProperty(name = "app.stream.max-concurrency", defaultValue = "16")
+    int streamMaxConcurrency;
 
+    // Con false los autores se piden cuando llegan los comentarios, como antes del pipeline
+    @ConfigProperty(name = "app.enrichment.pipelined", defaultValue = "true")
+    boolean pipelinedEnrichment;
+
+    // Peticiones idénticas simultáneas comparten una sola agregación
+    private final SingleFlight<PostQuery, List<PostResponse>> inFlightQueries = new SingleFlight<>();
+
+    // Peticiones que esperan cada agregación compartida, para aplicar a cada una su propio plazo
+    private final ConcurrentMap<PostQuery, SharedAggregation> sharedAggregations = new ConcurrentHashMap<>();
+
+    // Posts filtrados de cada versión de la vista con la posición de cada id, para paginar por cursor
+    private final Cache<OrderKey, OrderIndex> orderIndexes = Caffeine.newBuilder()
+            .maximumSize(64)
+            .build();
+
+    public List<PostResponse> getPostsWithDetails() {
+        return getPosts(PostQuery.unfiltered(maxPostsLimit));
+    }
+
+    /**
+     * Variante bloqueante de {@link #getPostsAsync(PostQuery)}.
+     */
+    public List<PostResponse> getPosts(PostQuery query) {
         try {
-            List<PostDto> posts = fetchPostsWithTimeout();
+            return getPostsAsync(query).join();
+        } catch (CompletionException ex) {
+            Throwable cause = unwrap(ex);
+            throw cause instanceof RuntimeException runtime ? runtime : ex;
+        }
+    }
 
-            if (posts == null || posts.isEmpty()) {
-                LOG.warn("No se encontraron posts");
-                throw new ResourceNotFoundException("No hay posts disponibles");
+    /**
+     * Filtra y pagina la lista de posts antes de enriquecerla, de modo que solo se
+     * consultan comentarios y autores de los posts de la página solicitada.
+     * La composición no bloquea ningún hilo mientras esperan las llamadas externas.
+     * Las peticiones idénticas comparten la agregación, pero cada una con su plazo: al vencer
+     * recibe como {@link PartialPosts} los posts ya completos, y las llamadas pendientes solo
+     * se cancelan cuando ninguna petición espera ya el resultado.
+     */
+    public CompletableFuture<List<PostResponse>> getPostsAsync(PostQuery query) {
+        PostQuery key = query.normalized(maxPostsLimit);
+        MaterializedPostsView.Snapshot snapshot = postsView.current();
+        if (snapshot != null) {
+            try {
+                return CompletableFuture.completedFuture(readSnapshot(snapshot, key));
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
             }
+        }
 
-            // Limitar el número de posts procesados
-            if (posts.size() > maxPostsLimit) {
-                LOG.warn("Limité el número de posts de {} a {}", posts.size(), maxPostsLimit);
-                posts = posts.subList(0, maxPostsLimit);
-            }
+        Deadline deadline = Deadline.current();
+        SharedAggregation shared = sharedAggregations.compute(key, (ignored, current) -> {
+            SharedAggregation joined = current != null ? current : new SharedAggregation();
+            joined.waiting++;
+            return joined;
+        });
+        CompletableFuture<List<PostResponse>> result;
+        try (Scope ignored = shared.deadline.makeCurrent()) {
+            result = inFlightQueries.execute(key, () -> postsCache.get(key, () -> aggregatePosts(key, shared)));
+        }
+        CompletableFuture<List<PostResponse>> bounded = deadline == null
+                ? result
+                : result.applyToEither(partialAtExpiry(deadline, result, () -> shared.posts), Function.identity());
+        bounded.whenComplete((value, ex) -> leave(key, shared, result));
+        return bounded;
+    }
 
-            Map<Long, List<CommentDto>> commentsMap = prefetchComments(posts);
-            Map<Long, CompletableFuture<UserDto>> userCache = new ConcurrentHashMap<>();
+    // Agregación compartida por las peticiones idénticas en curso. Corre con un plazo propio que
+    // vence cuando la deja la última petición que la esperaba y publica sus posts en curso
+    private static final class SharedAggregation {
+        final Deadline deadline = Deadline.manual();
+        volatile List<CompletableFuture<PostResponse>> posts;
+        // Solo se modifica dentro de compute sobre sharedAggregations
+        int waiting;
+    }
 
-            List<CompletableFuture<PostResponse>> futures = posts.stream()
-                    .filter(post -> post != null && post.id != null)
-                    .map(post -> createPostResponseFuture(
-                            post,
-                            commentsMap.getOrDefault(post.id, Collections.emptyList()),
-                            userCache
-                    ))
-                    .collect(Collectors.toList());
+    private void leave(PostQuery key, SharedAggregation shared, CompletableFuture<List<PostResponse>> result) {
+        SharedAggregation remaining = sharedAggregations.computeIfPresent(key,
+                (ignored, current) -> --current.waiting > 0 ? current : null);
+        if (remaining == null && !result.isDone()) {
+            shared.deadline.expire();
+        }
+    }
 
-            List<PostResponse> responses = futures.stream()
-                    .map(CompletableFuture::join)
-                    .filter(Objects::nonNull)
-                    .collect(Collectors.toList());
+    /**
+     * Página de posts que sigue a {@code cursor} (la primera si es {@code null}). Es
+     * paginación por keyset: la página empieza después del último post entregado en el orden
+     * de la misma versión de la lista, así que los cambios entre peticiones no repiten ni
+     * saltan posts y una página profunda cuesta lo mismo que la primera. Con la vista
+     * materializada se pagina sobre la snapshot del cursor mientras se conserve, y si no sobre
+     * la actual; sin vista, sobre la lista en vivo enriqueciendo solo la página.
+     * El {@code offset} de la consulta se ignora.
+     *
+     * @throws BadRequestException  si el cursor se emitió para otros filtros
+     * @throws ClientErrorException 410 si el último post del cursor ya no está en la lista
+     */
+    public CompletableFuture<PostPage> getPostsPageAsync(PostQuery query, PostCursor cursor) {
+        PostQuery key = query.normalized(maxPostsLimit);
+        if (cursor != null && !cursor.matches(key)) {
+            return CompletableFuture.failedFuture(new BadRequestException("El cursor no corresponde a estos filtros"));
+        }
 
-            long processingTime = System.currentTimeMillis() - startTime;
-            LOG.info("Posts procesados correctamente: {} en {} ms", responses.size(), processingTime);
+        MaterializedPostsView.Snapshot retained = cursor != null ? postsView.snapshot(cursor.version()) : null;
+        MaterializedPostsView.Snapshot snapshot = retained != null ? retained : postsView.current();
+        if (snapshot != null) {
+            try {
+                if (snapshot.posts().isEmpty()) {
+                    throw new ResourceNotFoundException("No hay posts disponibles");
+                }
+                OrderIndex index = orderIndexes.get(new OrderKey(snapshot.version(), key.authorId(), key.search()),
+                        ignored -> OrderIndex.of(matching(snapshot.posts(), key).collect(Collectors.toList())));
+                PageSlice slice = slice(index, snapshot.version(), key, cursor);
+                List<PostResponse> posts = slice.posts().stream()
+                        .map(post -> snapshot.responses().get(post.id))
+                        .filter(Objects::nonNull)
+                        .map(response -> project(response, key))
+                        .collect(Collectors.toList());
+                return CompletableFuture.completedFuture(new PostPage(posts, slice.nextCursor()));
+            } catch (RuntimeException ex) {
+                return CompletableFuture.failedFuture(ex);
+            }
+        }
 
-            return responses;
+        return tracing.internal("posts.aggregate", Attributes.empty(), () -> fetchPosts()
+                .thenCompose(Context.current().wrapFunction(posts -> {
+                    if (posts == null || posts.isEmpty()) {
+                        LOG.warn("No se encontraron posts");
+                        throw new ResourceNotFoundException("No hay posts disponibles");
+                    }
+                    OrderIndex index = OrderIndex.of(matching(posts, key).collect(Collectors.toList()));
+                    PageSlice slice = slice(index, LIVE_VERSION, key, cursor);
+                    if (slice.posts().isEmpty()) {
+                        return CompletableFuture.completedFuture(new PostPage(List.of(), null));
+                    }
+                    return enrichPage(slice.posts(), key)
+                            .thenApply(responses -> new PostPage(responses, slice.nextCursor()));
+                })));
+    }
 
-        } catch (ResourceNotFoundException | ExternalServiceException ex) {
-            throw ex;
-        } catch (Exception ex) {
-            LOG.error("Error inesperado al obtener posts con detalles", ex);
-            throw new ExternalServiceException("Error inesperado al procesar los posts", ex);
+    private record OrderKey(long version, Long authorId, String search) {
+    }
+
+    private record OrderIndex(List<PostDto> posts, Map<Long, Integer> positions) {
+        static OrderIndex of(List<PostDto> posts) {
+            Map<Long, Integer> positions = new HashMap<>();
+            for (int i = 0; i < posts.size(); i++) {
+                positions.putIfAbsent(posts.get(i).id, i);
+            }
+            return new OrderIndex(posts, positions);
         }
     }
 
-    private List<PostDto> fetchPostsWithTimeout() {
-        try {
-            return CompletableFuture.supplyAsync(() -> postClient.getPosts(), executor)
-                    .orTimeout(externalTimeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS)
-                    .join();
-        } catch (Exception ex) {
-            LOG.error("Fallo en servicio externo de posts", ex);
-            throw new ExternalServiceException("Error al obtener posts", ex);
+    private record PageSlice(List<PostDto> posts, String nextCursor) {
+    }
+
+    // Un cursor de otra versión sigue valiendo mientras su último post exista en esta
+    private static PageSlice slice(OrderIndex index, long version, PostQuery query, PostCursor cursor) {
+        int from = 0;
+        if (cursor != null) {
+            Integer position = index.positions().get(cursor.lastId());
+            if (position == null) {
+                throw new ClientErrorException("El cursor ha caducado; vuelve a pedir la primera página",
+                        Response.Status.GONE);
+            }
+            from = position + 1;
         }
+        int to = Math.min(index.posts().size(), from + query.limit());
+        List<PostDto> page = index.posts().subList(Math.min(from, to), to);
+        String next = to < index.posts().size() && !page.isEmpty()
+                ? PostCursor.of(version, page.get(page.size() - 1).id, query).encode()
+                : null;
+        return new PageSlice(page, next);
     }
 
-    private Map<Long, List<CommentDto>> prefetchComments(List<PostDto> posts) {
-        List<CompletableFuture<Map.Entry<Long, List<CommentDto>>>> commentFutures = posts.stream()
-                .filter(post -> post != null && post.id != null)
-                .map(post -> CompletableFuture.supplyAsync(
-                        () -> Map.entry(post.id, fetchCommentsSafe(post.id)), executor
-                ).orTimeout(externalTimeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS))
+    /**
+     * Enriquece una lista de posts con comentarios y autores. La usa el refresco de la
+     * vista materializada para los posts nuevos o modificados.
+     */
+    public CompletableFuture<List<PostResponse>> enrichPosts(List<PostDto> posts) {
+        if (posts.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return tracing.internal("posts.enrich", Attributes.of(AggregationTracing.PAGE_SIZE, (long) posts.size()),
+                () -> enrichPage(posts, null));
+    }
+
+    public SingleFlight<PostQuery, List<PostResponse>> inFlightQueries() {
+        return inFlightQueries;
+    }
+
+    // Con la vista cargada, la consulta se resuelve sobre la snapshot sin llamadas externas
+    private List<PostResponse> readSnapshot(MaterializedPostsView.Snapshot snapshot, PostQuery query) {
+        if (snapshot.posts().isEmpty()) {
+            throw new ResourceNotFoundException("No hay posts disponibles");
+        }
+        return selectPage(snapshot.posts(), query).stream()
+                .map(post -> snapshot.responses().get(post.id))
+                .filter(Objects::nonNull)
+                .map(response -> project(response, query))
                 .collect(Collectors.toList());
+    }
+
+    private CompletableFuture<List<PostResponse>> aggregatePosts(PostQuery query, SharedAggregation shared) {
+        LOG.debug("Iniciando obtención de posts con detalles para {}", query);
+
+        long startTime = System.nanoTime();
+
+        // El enriquecimiento arranca en el hilo que completa la lista de posts: se ejecuta con
+        // el contexto del span de la agregación para que sus llamadas cuelguen de él
+        return tracing.internal("posts.aggregate", Attributes.empty(), () -> fetchPage(query)
+                .thenCompose(Context.current().wrapFunction(page -> {
+                    if (page.isEmpty()) {
+                        return CompletableFuture.completedFuture(Collections.<PostResponse>emptyList());
+                    }
+                    List<CompletableFuture<PostResponse>> posts = startPosts(page, query);
+                    shared.posts = posts;
+                    return allPosts(posts);
+                })))
+                .whenComplete((responses, ex) -> {
+                    long processingTime = System.nanoTime() - startTime;
+                    metrics.recordAggregation(processingTime, ex == null);
+                    if (ex == null) {
+                        LOG.info("Posts procesados correctamente: {} en {} ms",
+                                responses.size(), TimeUnit.NANOSECONDS.toMillis(processingTime));
+                    }
+                });
+    }
+
+    /**
+     * Emite cada post en cuanto sus comentarios y su autor están resueltos, sin esperar al
+     * resto de la página. Como mucho {@code app.stream.max-concurrency} posts se enriquecen
+     * a la vez y la emisión respeta la demanda del suscriptor. Las cargas masivas de
+     * comentarios y autores se piden por ventanas de ese mismo tamaño, cuando el primer post
+     * de cada ventana entra en el enriquecimiento.
+     */
+    public Multi<PostResponse> streamPosts(PostQuery query) {
+        LOG.debug("Iniciando streaming de posts para {}", query);
+
+        MaterializedPostsView.Snapshot snapshot = postsView.current();
+        if (snapshot != null) {
+            return Multi.createFrom().deferred(() ->
+                    Multi.createFrom().iterable(readSnapshot(snapshot, query.normalized(maxPostsLimit))));
+        }
+
+        Context context = Context.current();
+        int window = Math.max(1, streamMaxConcurrency);
+        return Uni.createFrom().completionStage(() -> fetchPage(query))
+                .onItem().transformToMulti(page -> {
+                    AtomicReferenceArray<PageEnrichment> windows =
+                            new AtomicReferenceArray<>((page.size() + window - 1) / window);
+                    return Multi.createFrom().range(0, page.size())
+                            .onItem().transformToUni(i -> Uni.createFrom().completionStage(context.wrapSupplier(() ->
+                                    windowEnrichment(windows, page, i / window, window, query).enrich(page.get(i)))))
+                            .merge(window);
+                });
+    }
+
+    // La ventana se empieza a enriquecer cuando se pide su primer post
+    private PageEnrichment windowEnrichment(AtomicReferenceArray<PageEnrichment> windows, List<PostDto> page,
+                                            int index, int window, PostQuery query) {
+        PageEnrichment enrichment = windows.get(index);
+        if (enrichment != null) {
+            return enrichment;
+        }
+        synchronized (windows) {
+            enrichment = windows.get(index);
+            if (enrichment == null) {
+                int from = index * window;
+                enrichment = startEnrichment(page.subList(from, Math.min(page.size(), from + window)), query);
+                windows.set(index, enrichment);
+            }
+            return enrichment;
+        }
+    }
 
-        return commentFutures.stream()
-                .map(future -> {
-                    try {
-                        return future.join();
-                    } catch (Exception ex) {
-                        LOG.warn("Error al obtener comentarios, usando lista vacía", ex);
-                        return Map.entry(-1L, Collections.<CommentDto>emptyList());
+    private CompletableFuture<List<PostDto>> fetchPage(PostQuery query) {
+        return fetchPosts()
+                .thenApply(posts -> {
+                    if (posts == null || posts.isEmpty()) {
+                        LOG.warn("No se encontraron posts");
+                        throw new ResourceNotFoundException("No hay posts disponibles");
                     }
+
+                    List<PostDto> page = selectPage(posts, query);
+                    if (page.isEmpty()) {
+                        LOG.info("Ningún post coincide con {}", query);
+                    }
+                    return page;
                 })
-                .filter(entry -> entry.getKey() > 0)
-                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+                .handle((page, ex) -> {
+                    if (ex == null) {
+                        return page;
+                    }
+                    Throwable cause = unwrap(ex);
+                    if (cause instanceof ResourceNotFoundException || cause instanceof ExternalServiceException) {
+                        throw (RuntimeException) cause;
+                    }
+                    LOG.error("Error inesperado al obtener posts con detalles", cause);
+                    throw new ExternalServiceException("Error inesperado al procesar los posts", cause);
+                });
     }
 
-    private List<CommentDto> fetchCommentsSafe(Long postId) {
-        try {
-            List<CommentDto> comments = commentClient.getComments(postId);
-            return comments != null ? comments : Collections.emptyList();
-        } catch (NotFoundException ex) {
-            LOG.warn("Comentarios no encontrados para postId {}", postId);
-            return Collections.emptyList();
-        } catch (Exception ex) {
-            LOG.error("Fallo al obtener comentarios para postId {}", postId, ex);
-            return Collections.emptyList();
+    /**
+     * Con plazo de petición, si vence antes de completar la página se devuelven como
+     * {@link PartialPosts} los posts ya completos; las llamadas pendientes las cancela el plazo.
+     */
+    private CompletableFuture<List<PostResponse>> enrichPage(List<PostDto> page, PostQuery query) {
+        List<CompletableFuture<PostResponse>> posts = startPosts(page, query);
+        CompletableFuture<List<PostResponse>> complete = allPosts(posts);
+
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return complete;
+        }
+        return complete.applyToEither(partialAtExpiry(deadline, complete, () -> posts), Function.identity());
+    }
+
+    private List<CompletableFuture<PostResponse>> startPosts(List<PostDto> page, PostQuery query) {
+        PageEnrichment enrichment = startEnrichment(page, query);
+        return page.stream()
+                .map(enrichment::enrich)
+                .collect(Collectors.toList());
+    }
+
+    private static CompletableFuture<List<PostResponse>> allPosts(List<CompletableFuture<PostResponse>> posts) {
+        return CompletableFuture.allOf(posts.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> posts.stream()
+                        .map(CompletableFuture::join)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
+    }
+
+    /**
+     * Se ejecuta al vencer {@code deadline} y antes de cancelar sus llamadas: solo cuentan los
+     * posts ya terminados, ninguno si aún no se había obtenido la lista.
+     */
+    private CompletableFuture<List<PostResponse>> partialAtExpiry(
+            Deadline deadline,
+            CompletableFuture<List<PostResponse>> complete,
+            Supplier<List<CompletableFuture<PostResponse>>> posts) {
+        return deadline.expiry()
+                .thenApply(Context.current().wrapFunction(ignored -> {
+                    List<CompletableFuture<PostResponse>> started = posts.get();
+                    List<PostResponse> done = started == null ? List.of() : started.stream()
+                            .filter(future -> future.isDone() && !future.isCompletedExceptionally())
+                            .map(CompletableFuture::join)
+                            .filter(Objects::nonNull)
+                            .collect(Collectors.toList());
+                    if (complete.isDone()) {
+                        return new PartialPosts(done);
+                    }
+                    if (started == null) {
+                        LOG.warn("Plazo agotado antes de obtener los posts");
+                        fallback(AggregationMetrics.PARTIAL, Attributes.empty());
+                    } else {
+                        LOG.warn("Plazo agotado: se devuelven {} de {} posts", done.size(), started.size());
+                        fallback(AggregationMetrics.PARTIAL, Attributes.of(AggregationTracing.PAGE_SIZE, (long) started.size()));
+                    }
+                    return new PartialPosts(done);
+                }));
+    }
+
+    /**
+     * Con {@code query == null} se enriquecen todos los campos; si la consulta no pide los
+     * comentarios o el autor, esas llamadas externas no se hacen.
+     */
+    private PageEnrichment startEnrichment(List<PostDto> page, PostQuery query) {
+        boolean withComments = query == null || query.includes(PostField.COMMENTS);
+        boolean withAuthor = query == null
+                || query.includes(PostField.AUTHOR_NAME) || query.includes(PostField.AUTHOR_EMAIL);
+        recordFanOut(page, withComments, withAuthor);
+
+        if (!withComments || !bulkCommentsEnabled) {
+            CompletableFuture<Map<Long, UserDto>> usersFuture = withAuthor && batchUsersEnabled ? loadUsersBatched(page) : null;
+            return new PageEnrichment(query, withComments, withAuthor, null, usersFuture);
         }
+        // Comentarios y autores se piden a la vez: ninguna fase espera a la otra
+        CompletableFuture<Map<Long, List<CommentDto>>> commentsFuture = prefetchComments(page);
+        CompletableFuture<Map<Long, UserDto>> usersFuture = !withAuthor || !batchUsersEnabled ? null
+                : pipelinedEnrichment ? loadUsersBatched(page)
+                : commentsFuture.thenCompose(Context.current().wrapFunction(ignored -> loadUsersBatched(page)));
+        return new PageEnrichment(query, true, withAuthor, commentsFuture, usersFuture);
     }
 
+    // Llamadas que la página necesita antes de aplicar la caché de usuarios
+    private void recordFanOut(List<PostDto> page, boolean withComments, boolean withAuthor) {
+        int commentCalls = !withComments ? 0 : bulkCommentsEnabled ? 1 : page.size();
+        int userCalls = !withAuthor ? 0 : (int) page.stream()
+                .map(post -> post.userId)
+                .filter(Objects::nonNull)
+                .distinct()
+                .count();
+        metrics.recordFanOut(Downstream.COMMENTS.configName(), commentCalls);
+        metrics.recordFanOut(Downstream.USERS.configName(), userCalls);
+    }
+
+    /**
+     * Cargas compartidas por los posts de una página: el mapa de comentarios en modo masivo
+     * y los autores en modo lote. Sin carga masiva, cada post pide sus propios comentarios y
+     * se completa sin esperar a los demás.
+     */
+    private final class PageEnrichment {
+        private final PostQuery query;
+        private final boolean withComments;
+        private final boolean withAuthor;
+        private final CompletableFuture<Map<Long, List<CommentDto>>> commentsFuture;
+        private final CompletableFuture<Map<Long, UserDto>> usersFuture;
+
+        PageEnrichment(PostQuery query, boolean withComments, boolean withAuthor,
+                       CompletableFuture<Map<Long, List<CommentDto>>> commentsFuture,
+                       CompletableFuture<Map<Long, UserDto>> usersFuture) {
+            this.query = query;
+            this.withComments = withComments;
+            this.withAuthor = withAuthor;
+            this.commentsFuture = commentsFuture;
+            this.usersFuture = usersFuture;
+        }
+
+        CompletableFuture<PostResponse> enrich(PostDto post) {
+            CompletableFuture<List<CommentDto>> comments = withComments
+                    ? commentsFor(post)
+                    : CompletableFuture.completedFuture(Collections.emptyList());
+            CompletableFuture<UserDto> user = !withAuthor ? null
+                    : pipelinedEnrichment || usersFuture != null ? resolveUser(post.userId, usersFuture)
+                    : comments.thenCompose(Context.current().wrapFunction(ignored -> resolveUser(post.userId, null)));
+            return createPostResponseFuture(post, comments, user)
+                    .thenApply(response -> project(response, query));
+        }
+
+        private CompletableFuture<List<CommentDto>> commentsFor(PostDto post) {
+            if (commentsFuture == null) {
+                return fetchCommentsSafe(post.id);
+            }
+            return commentsFuture.thenApply(commentsMap -> commentsMap.getOrDefault(post.id, Collections.emptyList()));
+        }
+    }
+
+    // Copia con solo los campos pedidos: las respuestas completas pueden estar compartidas
+    private static PostResponse project(PostResponse response, PostQuery query) {
+        if (query == null || query.fields() == null) {
+            return response;
+        }
+        PostResponse projected = new PostResponse();
+        projected.id = response.id;
+        projected.title = query.includes(PostField.TITLE) ? response.title : null;
+        projected.body = query.includes(PostField.BODY) ? response.body : null;
+        projected.authorName = query.includes(PostField.AUTHOR_NAME) ? response.authorName : null;
+        projected.authorEmail = query.includes(PostField.AUTHOR_EMAIL) ? response.authorEmail : null;
+        projected.comments = query.includes(PostField.COMMENTS) ? response.comments : null;
+        projected.degraded = response.degraded;
+        return projected;
+    }
+
+    List<PostDto> selectPage(List<PostDto> posts, PostQuery query) {
+        // Limitar el número de posts procesados
+        int limit = query.limit();
+        if (limit > maxPostsLimit) {
+            LOG.warn("Limité el número de posts de {} a {}", limit, maxPostsLimit);
+            limit = maxPostsLimit;
+        }
+
+        return matching(posts, query)
+                .skip(query.offset())
+                .limit(limit)
+                .collect(Collectors.toList());
+    }
+
+    // Posts que cumplen los filtros, en el orden en que se paginan
+    private Stream<PostDto> matching(List<PostDto> posts, PostQuery query) {
+        return candidates(posts, query).stream()
+                .filter(post -> post != null && post.id != null)
+                .filter(post -> query.authorId() == null || query.authorId().equals(post.userId));
+    }
+
+    // Sin búsqueda se conserva el orden original; con búsqueda, el orden de relevancia del índice
+    private List<PostDto> candidates(List<PostDto> posts, PostQuery query) {
+        String search = query.search();
+        if (search == null) {
+            return query.authorId() == null ? posts : authorIndex.postsByAuthor(posts, query.authorId());
+        }
+        return searchIndex.search(posts, search);
+    }
+
+    private CompletableFuture<List<PostDto>> fetchPosts() {
+        return gateway.getPosts()
+                .exceptionally(ex -> {
+                    LOG.error("Fallo en servicio externo de posts", ex);
+                    throw new ExternalServiceException("Error al obtener posts", unwrap(ex));
+                });
+    }
+
+    private CompletableFuture<Map<Long, List<CommentDto>>> prefetchComments(List<PostDto> posts) {
+        return prefetchCommentsBulk(posts)
+                .exceptionallyCompose(Context.current().wrapFunction(ex -> {
+                    LOG.warn("Fallo la carga masiva de comentarios, usando llamadas por post", ex);
+                    fallback(AggregationMetrics.BULK_COMMENTS, Attributes.empty());
+                    return prefetchCommentsPerPost(posts);
+                }));
+    }
+
+    private CompletableFuture<Map<Long, List<CommentDto>>> prefetchCommentsBulk(List<PostDto> posts) {
+        Set<Long> postIds = posts.stream()
+                .filter(post -> post != null && post.id != null)
+                .map(post -> post.id)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // Con muchos ids la URL crece demasiado: se pide la colección completa y se filtra aquí
+        List<Long> filter = postIds.size() <= bulkMaxFilterIds ? new ArrayList<>(postIds) : null;
+
+        return gateway.getCommentsByPostIds(filter).thenApply(comments -> {
+            Map<Long, List<CommentDto>> commentsMap = new HashMap<>();
+            if (comments != null) {
+                for (CommentDto comment : comments) {
+                    if (comment != null && comment.postId != null && postIds.contains(comment.postId)) {
+                        commentsMap.computeIfAbsent(comment.postId, id -> new ArrayList<>()).add(comment);
+                    }
+                }
+            }
+            LOG.debug("Carga masiva de comentarios: {} posts, {} con comentarios", postIds.size(), commentsMap.size());
+            return commentsMap;
+        });
+    }
+
+    private CompletableFuture<Map<Long, List<CommentDto>>> prefetchCommentsPerPost(List<PostDto> posts) {
+        List<CompletableFuture<Map.Entry<Long, List<CommentDto>>>> commentFutures = posts.stream()
+                .filter(post -> post != null && post.id != null)
+                .map(post -> fetchCommentsSafe(post.id).thenApply(comments -> Map.entry(post.id, comments)))
+                .collect(Collectors.toList());
+
+        return CompletableFuture.allOf(commentFutures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> commentFutures.stream()
+                        .map(CompletableFuture::join)
+                        .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue)));
+    }
+
+    private CompletableFuture<List<CommentDto>> fetchCommentsSafe(Long postId) {
+        return gateway.getComments(postId).handle(Context.current().wrapFunction((comments, ex) -> {
+            if (ex == null) {
+                return comments != null ? comments : Collections.<CommentDto>emptyList();
+            }
+            if (unwrap(ex) instanceof NotFoundException) {
+                LOG.warn("Comentarios no encontrados para postId {}", postId);
+            } else {
+                LOG.error("Fallo al obtener comentarios para postId {}", postId, ex);
+            }
+            fallback(AggregationMetrics.EMPTY_COMMENTS, Attributes.of(AggregationTracing.POST_ID, postId));
+            return FALLBACK_COMMENTS;
+        }));
+    }
+
+    /**
+     * El post se completa cuando sus comentarios y su autor están listos; ambas llamadas
+     * ya están en curso en paralelo cuando se invoca este método.
+     */
     private CompletableFuture<PostResponse> createPostResponseFuture(
             PostDto post,
-            List<CommentDto> comments,
-            Map<Long, CompletableFuture<UserDto>> userCache) {
+            CompletableFuture<List<CommentDto>> commentsFuture,
+            CompletableFuture<UserDto> userFuture) {
 
         PostResponse response = new PostResponse();
         response.id = post.id;
         response.title = Objects.toString(post.title, "");
         response.body = Objects.toString(post.body, "");
-        response.comments = comments;
 
-        return getOrCreateUserFuture(post.userId, userCache)
-                .thenApply(user -> {
+        if (userFuture == null) {
+            // Sin autor pedido no se rellena ni cuenta como respaldo
+            return commentsFuture.thenApply(comments -> {
+                setComments(response, comments);
+                return response;
+            });
+        }
+
+        Context context = Context.current();
+        CompletableFuture<PostResponse> withAuthor = userFuture
+                .thenApply(context.wrapFunction(user -> {
                     populateAuthorInfo(response, user);
                     return response;
-                })
-                .exceptionally(ex -> {
+                }))
+                .exceptionally(context.wrapFunction(ex -> {
                     LOG.error("Error procesando usuario para post {}. Asignando autor por defecto.", post.id, ex);
                     setDefaultAuthor(response);
                     return response;
+                }));
+
+        return commentsFuture.thenCombine(withAuthor, (comments, withAuthorInfo) -> {
+            setComments(withAuthorInfo, comments);
+            return withAuthorInfo;
+        });
+    }
+
+    private static void setComments(PostResponse response, List<CommentDto> comments) {
+        response.comments = comments;
+        if (comments == FALLBACK_COMMENTS) {
+            response.degraded = true;
+        }
+    }
+
+    private CompletableFuture<UserDto> resolveUser(Long userId, CompletableFuture<Map<Long, UserDto>> usersFuture) {
+        if (userId == null || usersFuture == null) {
+            return getOrCreateUserFuture(userId);
+        }
+        // Si el lote falla se reintenta el usuario de forma individual
+        return usersFuture
+                .thenApply(users -> users.get(userId))
+                .exceptionallyCompose(Context.current().wrapFunction(ex -> getOrCreateUserFuture(userId)));
+    }
+
+    /**
+     * Reúne los autores distintos de la página y los resuelve en lote (estilo DataLoader):
+     * solo los ausentes de la caché se piden, en bloques de {@code app.users.batch.size} ids
+     * o con una única llamada a la colección completa si {@code app.users.batch.fetch-all}.
+     */
+    private CompletableFuture<Map<Long, UserDto>> loadUsersBatched(List<PostDto> posts) {
+        Set<Long> userIds = posts.stream()
+                .map(post -> post.userId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+
+        // La carga es compartida entre peticiones: no se cancela con el plazo de esta
+        return Deadline.detached(() -> userCache.getAll(userIds, this::fetchUsersBatched))
+                .whenComplete(Context.current().wrapConsumer((users, ex) -> {
+                    if (ex != null) {
+                        LOG.warn("Fallo la carga en lote de usuarios, usando llamadas individuales", ex);
+                        fallback(AggregationMetrics.USER_BATCH, Attributes.empty());
+                    }
+                }));
+    }
+
+    private CompletableFuture<Map<Long, UserDto>> fetchUsersBatched(Set<Long> userIds) {
+        if (fetchAllUsers) {
+            return fetchUsers(null);
+        }
+
+        List<Long> ids = new ArrayList<>(userIds);
+        int batchSize = Math.max(1, userBatchSize);
+        List<CompletableFuture<Map<Long, UserDto>>> batches = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            batches.add(fetchUsers(ids.subList(from, Math.min(from + batchSize, ids.size()))));
+        }
+
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<Long, UserDto> users = new HashMap<>();
+                    batches.forEach(batch -> users.putAll(batch.join()));
+                    return users;
                 });
     }
 
-    private CompletableFuture<UserDto> getOrCreateUserFuture(Long userId, Map<Long, CompletableFuture<UserDto>> userCache) {
+    private CompletableFuture<Map<Long, UserDto>> fetchUsers(List<Long> userIds) {
+        return gateway.getUsers(userIds).thenApply(users -> {
+            Map<Long, UserDto> byId = new HashMap<>();
+            if (users != null) {
+                for (UserDto user : users) {
+                    if (user != null && user.id != null) {
+                        byId.put(user.id, user);
+                    }
+                }
+            }
+            return byId;
+        });
+    }
+
+    private CompletableFuture<UserDto> getOrCreateUserFuture(Long userId) {
         if (userId == null) {
             return CompletableFuture.completedFuture(null);
         }
 
-        return userCache.computeIfAbsent(userId, id ->
-                CompletableFuture.supplyAsync(() -> {
-                    try {
-                        return userClient.getUser(id);
-                    } catch (Exception ex) {
-                        LOG.error("Error obteniendo usuario {}", id, ex);
-                        throw new RuntimeException("Error obteniendo usuario " + id, ex);
-                    }
-                }, executor).orTimeout(externalTimeoutMs, java.util.concurrent.TimeUnit.MILLISECONDS)
-        );
+        // La caché es compartida entre peticiones y reutiliza las búsquedas en curso, así
+        // que la carga no depende del plazo de la petición que la lanza
+        return Deadline.detached(() -> userCache.get(userId, id ->
+                gateway.getUser(id).exceptionally(ex -> {
+                    LOG.error("Error obteniendo usuario {}", id, ex);
+                    throw new RuntimeException("Error obteniendo usuario " + id, unwrap(ex));
+                })
+        ));
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        Throwable current = ex;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
     }
 
     private void populateAuthorInfo(PostResponse response, UserDto user) {
@@ -202,8 +827,15 @@ public class PostService {
     }
 
     private void setDefaultAuthor(PostResponse response) {
+        fallback(AggregationMetrics.DEFAULT_AUTHOR, Attributes.of(AggregationTracing.POST_ID, response.id));
         response.authorName = DEFAULT_AUTHOR_NAME;
         response.authorEmail = DEFAULT_AUTHOR_EMAIL;
+        response.degraded = true;
+    }
+
+    private void fallback(String type, Attributes attributes) {
+        metrics.fallback(type);
+        tracing.fallback(type, attributes);
     }
 
     public Response deletePost(Long postId) {
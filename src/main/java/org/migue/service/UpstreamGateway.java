@@ -0,0 +1,433 @@
+package org.migue.service;
+
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.context.Context;
+import io.smallrye.mutiny.Uni;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.core.GenericType;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+import org.eclipse.microprofile.rest.client.inject.RestClient;
+import org.migue.client.CommentClient;
+import org.migue.client.PostClient;
+import org.migue.client.ReactiveCommentClient;
+import org.migue.client.ReactivePostClient;
+import org.migue.client.ReactiveUserClient;
+import org.migue.client.UserClient;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostDto;
+import org.migue.dto.UserDto;
+import org.migue.metrics.AggregationMetrics;
+import org.migue.resilience.AdaptiveConcurrencyLimiter;
+import org.migue.resilience.Deadline;
+import org.migue.resilience.HedgeBudget;
+import org.migue.resilience.RequestHedger;
+import org.migue.tracing.AggregationTracing;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Punto único de acceso a los servicios externos de lectura.
+ * Cada llamada devuelve un {@link CompletableFuture} con el timeout externo aplicado, o el
+ * plazo restante de la petición si es menor ({@link Deadline}); según
+ * {@code app.aggregation.mode} se resuelve con los clientes bloqueantes en el executor, con
+ * los clientes Mutiny sin ocupar hilos o con los clientes bloqueantes en hilos virtuales.
+ */
+@ApplicationScoped
+public class UpstreamGateway {
+
+    private static final Logger LOG = LoggerFactory.getLogger(UpstreamGateway.class);
+
+    @Inject
+    @RestClient
+    PostClient postClient;
+
+    @Inject
+    @RestClient
+    CommentClient commentClient;
+
+    @Inject
+    @RestClient
+    UserClient userClient;
+
+    @Inject
+    @RestClient
+    ReactivePostClient reactivePostClient;
+
+    @Inject
+    @RestClient
+    ReactiveCommentClient reactiveCommentClient;
+
+    @Inject
+    @RestClient
+    ReactiveUserClient reactiveUserClient;
+
+    @Inject
+    Executor executor;
+
+    @Inject
+    AggregationMetrics metrics;
+
+    @Inject
+    AggregationTracing tracing;
+
+    @ConfigProperty(name = "app.aggregation.mode", defaultValue = "worker")
+    AggregationMode mode;
+
+    @ConfigProperty(name = "app.external.timeout.ms", defaultValue = "5000")
+    long externalTimeoutMs;
+
+    @ConfigProperty(name = "app.external.conditional-requests", defaultValue = "true")
+    boolean conditionalRequests;
+
+    @ConfigProperty(name = "app.virtual-threads.max-concurrency.posts", defaultValue = "8")
+    int maxConcurrentPostCalls;
+
+    @ConfigProperty(name = "app.virtual-threads.max-concurrency.comments", defaultValue = "32")
+    int maxConcurrentCommentCalls;
+
+    @ConfigProperty(name = "app.virtual-threads.max-concurrency.users", defaultValue = "16")
+    int maxConcurrentUserCalls;
+
+    @ConfigProperty(name = "app.limiter.enabled", defaultValue = "true")
+    boolean limiterEnabled;
+
+    @ConfigProperty(name = "app.limiter.initial-limit", defaultValue = "20")
+    int limiterInitialLimit;
+
+    @ConfigProperty(name = "app.limiter.min-limit", defaultValue = "2")
+    int limiterMinLimit;
+
+    @ConfigProperty(name = "app.limiter.max-limit", defaultValue = "200")
+    int limiterMaxLimit;
+
+    @ConfigProperty(name = "app.limiter.max-queue", defaultValue = "1000")
+    int limiterMaxQueue;
+
+    @ConfigProperty(name = "app.limiter.backoff-ratio", defaultValue = "0.9")
+    double limiterBackoffRatio;
+
+    @ConfigProperty(name = "app.limiter.latency-tolerance", defaultValue = "2.0")
+    double limiterLatencyTolerance;
+
+    @ConfigProperty(name = "app.hedging.enabled", defaultValue = "false")
+    boolean hedgingEnabled;
+
+    @ConfigProperty(name = "app.hedging.percentile", defaultValue = "95")
+    double hedgingPercentile;
+
+    @ConfigProperty(name = "app.hedging.window-size", defaultValue = "500")
+    int hedgingWindowSize;
+
+    @ConfigProperty(name = "app.hedging.min-samples", defaultValue = "20")
+    int hedgingMinSamples;
+
+    @ConfigProperty(name = "app.hedging.min-delay.ms", defaultValue = "10")
+    long hedgingMinDelayMs;
+
+    @ConfigProperty(name = "app.hedging.budget-ratio", defaultValue = "0.05")
+    double hedgingBudgetRatio;
+
+    @ConfigProperty(name = "app.hedging.budget-max-tokens", defaultValue = "10")
+    double hedgingBudgetMaxTokens;
+
+    private ExecutorService virtualExecutor;
+    private final Map<Downstream, Semaphore> permits = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, AdaptiveConcurrencyLimiter> limiters = new EnumMap<>(Downstream.class);
+    private final Map<Downstream, RequestHedger> hedgers = new EnumMap<>(Downstream.class);
+    private HedgeBudget hedgeBudget;
+
+    // Última lista de posts con su ETag, para peticiones condicionales al servicio externo
+    private volatile UpstreamPosts lastPosts;
+
+    @PostConstruct
+    void init() {
+        executor = tracing.propagating(metrics.instrument("upstream-worker", executor));
+        if (limiterEnabled) {
+            for (Downstream downstream : Downstream.values()) {
+                AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(downstream.configName(),
+                        limiterInitialLimit, limiterMinLimit, limiterMaxLimit, limiterMaxQueue,
+                        limiterBackoffRatio, limiterLatencyTolerance);
+                limiters.put(downstream, limiter);
+                metrics.gauge("upstream.limiter.limit", "client", downstream.configName(),
+                        limiter, AdaptiveConcurrencyLimiter::limit);
+                metrics.gauge("upstream.limiter.in-flight", "client", downstream.configName(),
+                        limiter, AdaptiveConcurrencyLimiter::inFlight);
+                metrics.gauge("upstream.limiter.queued", "client", downstream.configName(),
+                        limiter, AdaptiveConcurrencyLimiter::queueDepth);
+            }
+        }
+        if (hedgingEnabled) {
+            // Solo las búsquedas individuales de comentarios y usuarios se duplican
+            hedgeBudget = new HedgeBudget(hedgingBudgetRatio, hedgingBudgetMaxTokens);
+            for (Downstream downstream : List.of(Downstream.COMMENTS, Downstream.USERS)) {
+                hedgers.put(downstream, new RequestHedger(downstream.configName(), hedgingPercentile,
+                        hedgingWindowSize, hedgingMinSamples, hedgingMinDelayMs, hedgeBudget));
+            }
+            LOG.info("Hedging activado: p{} de la latencia reciente, presupuesto {}",
+                    hedgingPercentile, hedgingBudgetRatio);
+        }
+        if (mode == AggregationMode.VIRTUAL_THREADS) {
+            virtualExecutor = tracing.propagating(Executors.newVirtualThreadPerTaskExecutor());
+            permits.put(Downstream.POSTS, new Semaphore(maxConcurrentPostCalls, true));
+            permits.put(Downstream.COMMENTS, new Semaphore(maxConcurrentCommentCalls, true));
+            permits.put(Downstream.USERS, new Semaphore(maxConcurrentUserCalls, true));
+            LOG.info("Hilos virtuales activados: posts={}, comments={}, users={} llamadas simultáneas",
+                    maxConcurrentPostCalls, maxConcurrentCommentCalls, maxConcurrentUserCalls);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (virtualExecutor != null) {
+            virtualExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Con {@code app.external.conditional-requests=true} se envía If-None-Match con el ETag de
+     * la última respuesta; ante un 304 se reutiliza la lista anterior sin volver a leerla.
+     * La lista devuelta puede ser compartida entre llamadas y no debe modificarse.
+     */
+    public CompletableFuture<List<PostDto>> getPosts() {
+        if (!conditionalRequests) {
+            return call(Downstream.POSTS, "getPosts", Attributes.empty(),
+                    () -> postClient.getPosts(), () -> reactivePostClient.getPosts());
+        }
+        UpstreamPosts known = lastPosts;
+        String etag = known != null ? known.etag() : null;
+        return call(Downstream.POSTS, "getPosts", Attributes.empty(),
+                () -> readPosts(postClient.getPostsIfNoneMatch(etag), known),
+                () -> reactivePostClient.getPostsIfNoneMatch(etag).map(response -> readPosts(response, known)));
+    }
+
+    private List<PostDto> readPosts(Response response, UpstreamPosts known) {
+        try (response) {
+            if (response.getStatus() == Response.Status.NOT_MODIFIED.getStatusCode() && known != null) {
+                LOG.debug("Lista de posts sin cambios en el servicio externo (ETag {})", known.etag());
+                return known.posts();
+            }
+            if (response.getStatusInfo().getFamily() != Response.Status.Family.SUCCESSFUL) {
+                throw new WebApplicationException("Respuesta inesperada del servicio de posts", response.getStatus());
+            }
+            List<PostDto> posts = response.readEntity(new GenericType<List<PostDto>>() { });
+            String etag = response.getHeaderString(HttpHeaders.ETAG);
+            if (etag == null || posts == null) {
+                lastPosts = null;
+                return posts;
+            }
+            UpstreamPosts fresh = new UpstreamPosts(etag, Collections.unmodifiableList(new ArrayList<>(posts)));
+            lastPosts = fresh;
+            return fresh.posts();
+        }
+    }
+
+    public CompletableFuture<List<CommentDto>> getComments(Long postId) {
+        return hedgedCall(Downstream.COMMENTS, "getComments", Attributes.of(AggregationTracing.POST_ID, postId),
+                () -> commentClient.getComments(postId), () -> reactiveCommentClient.getComments(postId));
+    }
+
+    public CompletableFuture<List<CommentDto>> getCommentsByPostIds(List<Long> postIds) {
+        return call(Downstream.COMMENTS, "getCommentsByPostIds", idCount(postIds),
+                () -> commentClient.getCommentsByPostIds(postIds),
+                () -> reactiveCommentClient.getCommentsByPostIds(postIds));
+    }
+
+    public CompletableFuture<UserDto> getUser(Long userId) {
+        return hedgedCall(Downstream.USERS, "getUser", Attributes.of(AggregationTracing.USER_ID, userId),
+                () -> userClient.getUser(userId), () -> reactiveUserClient.getUser(userId));
+    }
+
+    public CompletableFuture<List<UserDto>> getUsers(List<Long> userIds) {
+        return call(Downstream.USERS, "getUsers", idCount(userIds),
+                () -> userClient.getUsers(userIds), () -> reactiveUserClient.getUsers(userIds));
+    }
+
+    public AggregationMode mode() {
+        return mode;
+    }
+
+    /**
+     * Executor en el que los endpoints ejecutan su trabajo bloqueante: hilos virtuales en
+     * modo {@code virtual-threads} y el pool de trabajo en el resto.
+     */
+    public Executor requestExecutor() {
+        return mode == AggregationMode.VIRTUAL_THREADS ? virtualExecutor : executor;
+    }
+
+    /**
+     * Límites adaptativos por servicio externo; vacío si {@code app.limiter.enabled=false}.
+     */
+    public Map<Downstream, AdaptiveConcurrencyLimiter> limiters() {
+        return Collections.unmodifiableMap(limiters);
+    }
+
+    /**
+     * Duplicadores de peticiones por servicio externo; vacío si {@code app.hedging.enabled=false}.
+     */
+    public Map<Downstream, RequestHedger> hedgers() {
+        return Collections.unmodifiableMap(hedgers);
+    }
+
+    /**
+     * Presupuesto global de duplicados, o {@code null} si el hedging está desactivado.
+     */
+    public HedgeBudget hedgeBudget() {
+        return hedgeBudget;
+    }
+
+    // El span cubre la espera en el limitador, los duplicados y el timeout
+    private <T> CompletableFuture<T> call(Downstream downstream, String operation, Attributes attributes,
+                                          Supplier<T> blocking, Supplier<Uni<T>> reactive) {
+        return tracing.upstream(downstream.configName(), operation, attributes, () ->
+                withinBudget(() -> limited(downstream, blocking, reactive)));
+    }
+
+    // Cada intento, original o duplicado, pasa por el limitador del servicio
+    private <T> CompletableFuture<T> hedgedCall(Downstream downstream, String operation, Attributes attributes,
+                                                Supplier<T> blocking, Supplier<Uni<T>> reactive) {
+        RequestHedger hedger = hedgers.get(downstream);
+        if (hedger == null) {
+            return call(downstream, operation, attributes, blocking, reactive);
+        }
+        return tracing.upstream(downstream.configName(), operation, attributes, () ->
+                withinBudget(() -> hedger.hedge(Context.current().wrapSupplier(
+                        () -> limited(downstream, blocking, reactive)))));
+    }
+
+    /**
+     * Con plazo de petición, una llamada que ya no cabe no se lanza y las lanzadas se cancelan
+     * al vencer el plazo; el timeout externo solo se aplica si vence antes.
+     */
+    private <T> CompletableFuture<T> withinBudget(Supplier<CompletableFuture<T>> call) {
+        Deadline deadline = Deadline.current();
+        if (deadline == null) {
+            return call.get().orTimeout(externalTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        long remainingMs = deadline.remainingMillis();
+        if (remainingMs <= 0) {
+            return CompletableFuture.failedFuture(new TimeoutException("Plazo de la petición agotado"));
+        }
+        CompletableFuture<T> future = call.get();
+        if (externalTimeoutMs < remainingMs) {
+            future.orTimeout(externalTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+        return deadline.track(future);
+    }
+
+    private static Attributes idCount(List<Long> ids) {
+        return ids == null ? Attributes.empty() : Attributes.of(AggregationTracing.ID_COUNT, (long) ids.size());
+    }
+
+    private <T> CompletableFuture<T> limited(Downstream downstream, Supplier<T> blocking, Supplier<Uni<T>> reactive) {
+        // Las llamadas encoladas arrancan en el hilo que libera hueco: se fija aquí el contexto
+        Supplier<CompletableFuture<T>> start = Context.current().wrapSupplier(() -> {
+            long startTime = System.nanoTime();
+            CompletableFuture<T> future = switch (mode) {
+                case REACTIVE -> reactive.get().subscribeAsCompletionStage();
+                case VIRTUAL_THREADS -> BlockingCall.start(
+                        () -> callWithPermit(permits.get(downstream), blocking), virtualExecutor);
+                default -> BlockingCall.start(blocking, executor);
+            };
+            // Se devuelve el futuro original para que la cancelación llegue a la llamada
+            future.whenComplete((value, ex) ->
+                    metrics.recordUpstream(downstream.configName(), System.nanoTime() - startTime, ex == null));
+            return future;
+        });
+
+        // El timeout cuenta también el tiempo de espera en la cola del limitador
+        AdaptiveConcurrencyLimiter limiter = limiters.get(downstream);
+        if (limiter != null) {
+            return limiter.submit(start);
+        }
+        return start.get();
+    }
+
+    /**
+     * Futuro de una llamada con cliente bloqueante. Cancelarlo interrumpe el hilo que espera la
+     * respuesta, o evita que la llamada arranque si aún no lo ha hecho, de modo que el hilo y el
+     * permiso de {@code callWithPermit} quedan libres en cuanto vence el plazo.
+     */
+    private static final class BlockingCall<T> extends CompletableFuture<T> {
+
+        private final FutureTask<T> task;
+
+        private BlockingCall(Supplier<T> blocking) {
+            task = new FutureTask<>(blocking::get) {
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        return;
+                    }
+                    try {
+                        BlockingCall.this.complete(get());
+                    } catch (ExecutionException ex) {
+                        BlockingCall.this.completeExceptionally(ex.getCause());
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        BlockingCall.this.completeExceptionally(ex);
+                    }
+                }
+            };
+        }
+
+        static <T> CompletableFuture<T> start(Supplier<T> blocking, Executor executor) {
+            BlockingCall<T> call = new BlockingCall<>(blocking);
+            executor.execute(call.task);
+            return call;
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            boolean cancelled = super.cancel(mayInterruptIfRunning);
+            task.cancel(true);
+            return cancelled;
+        }
+
+        // Los dependientes no tienen tarea propia que interrumpir
+        @Override
+        public <U> CompletableFuture<U> newIncompleteFuture() {
+            return new CompletableFuture<>();
+        }
+    }
+
+    private record UpstreamPosts(String etag, List<PostDto> posts) {
+    }
+
+    // Bloquear aquí solo aparca el hilo virtual, no un hilo de plataforma
+    private <T> T callWithPermit(Semaphore semaphore, Supplier<T> blocking) {
+        try {
+            semaphore.acquire();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(ex);
+        }
+        try {
+            return blocking.get();
+        } finally {
+            semaphore.release();
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package org.migue.tracing;
+
+import io.opentelemetry.api.common.AttributeKey;
+import io.opentelemetry.api.common.Attributes;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanBuilder;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.api.trace.StatusCode;
+import io.opentelemetry.api.trace.Tracer;
+import io.opentelemetry.context.Context;
+import io.opentelemetry.context.Scope;
+import jakarta.enterprise.context.ApplicationScoped;
+import jakarta.inject.Inject;
+import jakarta.ws.rs.WebApplicationException;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Trazas OpenTelemetry del camino de agregación de GET /posts.
+ * Cada agregación abre un span interno, hijo del span de la petición HTTP, y cada llamada
+ * externa un span de cliente hijo suyo con el post o usuario afectado. Todos terminan con
+ * un atributo {@code outcome} ({@code success}, {@code error}, {@code timeout},
+ * {@code rejected} o {@code cancelled}) y los respaldos aplicados quedan como eventos
+ * {@code fallback} del span activo.
+ */
+@ApplicationScoped
+public class AggregationTracing {
+
+    public static final AttributeKey<String> CLIENT = AttributeKey.stringKey("upstream.client");
+    public static final AttributeKey<String> OPERATION = AttributeKey.stringKey("upstream.operation");
+    public static final AttributeKey<String> OUTCOME = AttributeKey.stringKey("outcome");
+    public static final AttributeKey<Long> STATUS_CODE = AttributeKey.longKey("http.response.status_code");
+    public static final AttributeKey<Long> POST_ID = AttributeKey.longKey("post.id");
+    public static final AttributeKey<Long> USER_ID = AttributeKey.longKey("user.id");
+    public static final AttributeKey<Long> ID_COUNT = AttributeKey.longKey("upstream.id_count");
+    public static final AttributeKey<Long> PAGE_SIZE = AttributeKey.longKey("posts.page_size");
+    public static final AttributeKey<String> FALLBACK = AttributeKey.stringKey("fallback.type");
+
+    @Inject
+    Tracer tracer;
+
+    public AggregationTracing() {
+    }
+
+    public AggregationTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    /**
+     * Ejecuta {@code call} dentro de un span interno hijo del contexto actual y lo cierra
+     * cuando termina el futuro devuelto. Las continuaciones del futuro no heredan el
+     * contexto: quien lance llamadas desde ellas debe envolverlas con {@link Context#current()}.
+     */
+    public <T> CompletableFuture<T> internal(String name, Attributes attributes,
+                                             Supplier<CompletableFuture<T>> call) {
+        return traced(tracer.spanBuilder(name)
+                .setSpanKind(SpanKind.INTERNAL)
+                .setAllAttributes(attributes), call);
+    }
+
+    /**
+     * Ejecuta {@code call} con un span de cliente activo, de modo que los spans que cree el
+     * cliente REST cuelguen de él, y lo cierra cuando termina el futuro devuelto.
+     */
+    public <T> CompletableFuture<T> upstream(String client, String operation, Attributes attributes,
+                                             Supplier<CompletableFuture<T>> call) {
+        return traced(tracer.spanBuilder(client + " " + operation)
+                .setSpanKind(SpanKind.CLIENT)
+                .setAttribute(CLIENT, client)
+                .setAttribute(OPERATION, operation)
+                .setAllAttributes(attributes), call);
+    }
+
+    private <T> CompletableFuture<T> traced(SpanBuilder builder, Supplier<CompletableFuture<T>> call) {
+        Span span = builder.startSpan();
+        CompletableFuture<T> future;
+        try (Scope ignored = span.makeCurrent()) {
+            future = call.get();
+        } catch (RuntimeException ex) {
+            end(span, ex);
+            throw ex;
+        }
+        future.whenComplete((value, ex) -> end(span, ex));
+        return future;
+    }
+
+    private static void end(Span span, Throwable error) {
+        if (error == null) {
+            span.setAttribute(OUTCOME, "success");
+        } else {
+            Throwable cause = unwrap(error);
+            span.setAttribute(OUTCOME, outcome(cause));
+            if (cause instanceof WebApplicationException web && web.getResponse() != null) {
+                span.setAttribute(STATUS_CODE, (long) web.getResponse().getStatus());
+            }
+            span.recordException(cause);
+            span.setStatus(StatusCode.ERROR, cause.getClass().getSimpleName());
+        }
+        span.end();
+    }
+
+    /**
+     * Anota en el span activo que se aplicó un respaldo.
+     */
+    public void fallback(String type, Attributes attributes) {
+        Span.current().addEvent("fallback", attributes.toBuilder().put(FALLBACK, type).build());
+    }
+
+    /**
+     * Envuelve {@code delegate} para que cada tarea se ejecute con el contexto de traza de
+     * quien la envió.
+     */
+    public Executor propagating(Executor delegate) {
+        return Context.taskWrapping(delegate);
+    }
+
+    public ExecutorService propagating(ExecutorService delegate) {
+        return Context.taskWrapping(delegate);
+    }
+
+    private static String outcome(Throwable cause) {
+        if (cause instanceof TimeoutException) {
+            return "timeout";
+        }
+        if (cause instanceof RejectedExecutionException) {
+            return "rejected";
+        }
+        if (cause instanceof CancellationException) {
+            return "cancelled";
+        }
+        return "error";
+    }
+
+    private static Throwable unwrap(Throwable ex) {
+        Throwable current = ex;
+        while ((current instanceof CompletionException || current instanceof ExecutionException)
+                && current.getCause() != null) {
+            current = current.getCause();
+        }
+        return current;
+    }
+}
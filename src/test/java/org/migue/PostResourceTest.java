@@ -2,14 +2,26 @@ package org.migue;
 
 import io.quarkus.test.InjectMock;
 import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.mutiny.Multi;
+import jakarta.inject.Inject;
 import org.junit.jupiter.api.Test;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.dto.PartialPosts;
+import org.migue.dto.PostCursor;
+import org.migue.dto.PostField;
+import org.migue.dto.PostPage;
+import org.migue.dto.PostQuery;
 import org.migue.dto.PostResponse;
 import org.migue.service.PostService;
 import org.mockito.Mockito;
 import jakarta.ws.rs.core.Response;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 import static io.restassured.RestAssured.given;
 import static org.hamcrest.Matchers.*;
@@ -20,6 +32,9 @@ class PostResourceTest {
     @InjectMock
     PostService postService;
 
+    @Inject
+    MaterializedPostsView postsView;
+
     // Datos de prueba
     private PostResponse createMockPost(Long id, String title, String authorName) {
         PostResponse post = new PostResponse();
@@ -41,7 +56,8 @@ class PostResourceTest {
     void testGetAllPosts_Success() {
         // Arrange
         List<PostResponse> mockPosts = createMockPosts();
-        Mockito.when(postService.getPostsWithDetails()).thenReturn(mockPosts);
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(mockPosts));
 
         // Act & Assert
         given()
@@ -62,7 +78,8 @@ class PostResourceTest {
         List<PostResponse> mockPosts = Collections.singletonList(
                 createMockPost(1L, "Filtered Post", "Author 1")
         );
-        Mockito.when(postService.getPostsWithDetails()).thenReturn(mockPosts);
+        Mockito.when(postService.getPostsAsync(new PostQuery(1L, "test", 10, 0)))
+                .thenReturn(CompletableFuture.completedFuture(mockPosts));
 
         // Act & Assert
         given()
@@ -77,11 +94,177 @@ class PostResourceTest {
                 .body("[0].title", equalTo("Filtered Post"));
     }
 
+    @Test
+    void testGetAllPosts_FieldsParamIsParsed() {
+        // Arrange
+        PostResponse post = new PostResponse();
+        post.setId(1L);
+        post.setTitle("Solo titulo");
+        Mockito.when(postService.getPostsAsync(
+                        new PostQuery(null, null, 100, 0, EnumSet.of(PostField.ID, PostField.TITLE))))
+                .thenReturn(CompletableFuture.completedFuture(List.of(post)));
+
+        // Act & Assert
+        given()
+                .queryParam("fields", "title")
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .body("[0].title", equalTo("Solo titulo"))
+                .body("[0]", not(hasKey("comments")));
+    }
+
+    @Test
+    void testGetAllPosts_UnknownFieldReturnsBadRequest() {
+        given()
+                .queryParam("fields", "title,password")
+                .when().get("/posts")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testGetAllPosts_CursorPageLinksToNextPage() {
+        String next = new PostCursor(3, 2L, null, null).encode();
+        Mockito.when(postService.getPostsPageAsync(Mockito.any(), Mockito.isNull()))
+                .thenReturn(CompletableFuture.completedFuture(new PostPage(createMockPosts(), next)));
+
+        given()
+                .queryParam("cursor", "")
+                .queryParam("limit", 2)
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(2))
+                .header("X-Next-Cursor", equalTo(next))
+                .header("Link", allOf(containsString("cursor=" + next), containsString("rel=\"next\"")));
+    }
+
+    @Test
+    void testGetAllPosts_InvalidCursorOrCursorWithOffset() {
+        given()
+                .queryParam("cursor", "no-es-un-cursor")
+                .when().get("/posts")
+                .then()
+                .statusCode(400);
+
+        given()
+                .queryParam("cursor", new PostCursor(1, 1L, null, null).encode())
+                .queryParam("offset", 10)
+                .when().get("/posts")
+                .then()
+                .statusCode(400);
+    }
+
+    @Test
+    void testGetAllPosts_PartialResultIsFlagged() {
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(new PartialPosts(createMockPosts().subList(0, 1))));
+
+        given()
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(1))
+                .header("X-Partial-Results", equalTo("true"))
+                .header("Cache-Control", equalTo("no-store"));
+    }
+
+    @Test
+    void testGetAllPosts_StaleViewAddsWarningAndAge() {
+        // Arrange: vista restaurada desde disco hace dos minutos, sin refresco correcto
+        postsView.restore(new MaterializedPostsView.Snapshot(List.of(), Map.of(), Map.of(), 1,
+                System.currentTimeMillis() - 120_000));
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(createMockPosts()));
+
+        try {
+            // Act & Assert
+            given()
+                    .when().get("/posts")
+                    .then()
+                    .statusCode(200)
+                    .header("Warning", startsWith("110"))
+                    .header("Age", anyOf(equalTo("120"), equalTo("121")));
+        } finally {
+            postsView.publish(null);
+        }
+
+        given()
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .header("Warning", nullValue());
+    }
+
+    @Test
+    void testGetAllPosts_ETagAnswersNotModified() {
+        // Arrange
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(createMockPosts()));
+
+        String etag = given()
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .header("ETag", notNullValue())
+                .extract().header("ETag");
+
+        // Act & Assert
+        given()
+                .header("If-None-Match", etag)
+                .when().get("/posts")
+                .then()
+                .statusCode(304)
+                .header("ETag", equalTo(etag))
+                .header("Vary", equalTo("Accept-Encoding"));
+
+        given()
+                .header("If-None-Match", "\"otro\"")
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(2));
+    }
+
+    @Test
+    void testGetAllPosts_GzipNegotiation() {
+        // Arrange: respuesta suficientemente grande para comprimirse
+        List<PostResponse> mockPosts = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            PostResponse post = createMockPost(id, "Post " + id, "Author " + id);
+            post.setBody("cuerpo repetido ".repeat(10));
+            mockPosts.add(post);
+        }
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(mockPosts));
+
+        // Act & Assert
+        given()
+                .header("Accept-Encoding", "gzip")
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", "gzip")
+                .header("Vary", containsString("Accept-Encoding"))
+                .body("$", hasSize(20))
+                .body("[19].title", equalTo("Post 20"));
+
+        given()
+                .header("Accept-Encoding", "gzip;q=0, identity")
+                .when().get("/posts")
+                .then()
+                .statusCode(200)
+                .header("Content-Encoding", nullValue())
+                .body("$", hasSize(20));
+    }
+
     // Tests para GET /posts - Casos de error
     @Test
     void testGetAllPosts_EmptyResult() {
         // Arrange
-        Mockito.when(postService.getPostsWithDetails()).thenReturn(Collections.emptyList());
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(Collections.emptyList()));
 
         // Act & Assert
         given()
@@ -93,7 +276,8 @@ class PostResourceTest {
     @Test
     void testGetAllPosts_NullResult() {
         // Arrange
-        Mockito.when(postService.getPostsWithDetails()).thenReturn(null);
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
 
         // Act & Assert
         given()
@@ -152,7 +336,7 @@ class PostResourceTest {
     @Test
     void testGetAllPosts_ServiceException() {
         // Arrange
-        Mockito.when(postService.getPostsWithDetails())
+        Mockito.when(postService.getPostsAsync(Mockito.any()))
                 .thenThrow(new RuntimeException("Service error"));
 
         // Act & Assert
@@ -162,6 +346,53 @@ class PostResourceTest {
                 .statusCode(500);
     }
 
+    // Tests para GET /posts/stream
+    @Test
+    void testStreamPosts_Ndjson() {
+        // Arrange
+        Mockito.when(postService.streamPosts(Mockito.any()))
+                .thenReturn(Multi.createFrom().iterable(createMockPosts()));
+
+        // Act & Assert - un objeto JSON por línea
+        String body = given()
+                .accept("application/x-ndjson")
+                .when().get("/posts/stream")
+                .then()
+                .statusCode(200)
+                .contentType(startsWith("application/x-ndjson"))
+                .extract().asString();
+
+        List<String> lines = body.lines().filter(line -> !line.isBlank()).toList();
+        org.junit.jupiter.api.Assertions.assertEquals(2, lines.size());
+        org.junit.jupiter.api.Assertions.assertTrue(lines.get(0).contains("\"title\":\"Test Post 1\""));
+    }
+
+    @Test
+    void testStreamPosts_JsonArray() {
+        // Arrange
+        Mockito.when(postService.streamPosts(Mockito.any()))
+                .thenReturn(Multi.createFrom().iterable(createMockPosts()));
+
+        // Act & Assert
+        given()
+                .accept("application/json")
+                .when().get("/posts/stream")
+                .then()
+                .statusCode(200)
+                .body("$", hasSize(2))
+                .body("[1].title", equalTo("Test Post 2"));
+    }
+
+    @Test
+    void testStreamPosts_InvalidLimit() {
+        given()
+                .accept("application/x-ndjson")
+                .queryParam("limit", 0)
+                .when().get("/posts/stream")
+                .then()
+                .statusCode(400);
+    }
+
     // Tests para DELETE /posts/{id} - Casos exitosos
     @Test
     void testDeletePost_Success() {
@@ -277,7 +508,8 @@ class PostResourceTest {
         List<PostResponse> mockPosts = Collections.singletonList(
                 createMockPost(1L, "Clean Post", "Author")
         );
-        Mockito.when(postService.getPostsWithDetails()).thenReturn(mockPosts);
+        Mockito.when(postService.getPostsAsync(new PostQuery(null, "testscriptalert('xss')/script", 100, 0)))
+                .thenReturn(CompletableFuture.completedFuture(mockPosts));
 
         // Act & Assert - Los caracteres especiales deberían ser limpiados
         given()
@@ -0,0 +1,82 @@
+package org.migue.cache;
+
+import org.junit.jupiter.api.Test;
+import org.migue.dto.PostQuery;
+import org.migue.dto.PostResponse;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class AggregatedPostsCacheTest {
+
+    private AggregatedPostsCache createCache(long freshMs, long staleMs) {
+        AggregatedPostsCache cache = new AggregatedPostsCache();
+        cache.enabled = true;
+        cache.freshMs = freshMs;
+        cache.staleMs = staleMs;
+        cache.maxEntries = 10;
+        // Ejecución en el mismo hilo para que la recarga sea determinista
+        cache.executor = Runnable::run;
+        cache.init();
+        return cache;
+    }
+
+    private static final PostQuery KEY = PostQuery.unfiltered(10);
+
+    private PostResponse post(long id) {
+        PostResponse post = new PostResponse();
+        post.setId(id);
+        return post;
+    }
+
+    private Supplier<CompletableFuture<List<PostResponse>>> counting(AtomicInteger loads) {
+        return () -> completedFuture(List.of(post(loads.incrementAndGet())));
+    }
+
+    @Test
+    void testFreshEntryIsServedWithoutReloading() {
+        AggregatedPostsCache cache = createCache(60_000, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        List<PostResponse> first = cache.get(KEY, counting(loads)).join();
+        List<PostResponse> second = cache.get(KEY, counting(loads)).join();
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.misses());
+        assertEquals(1, cache.freshHits());
+    }
+
+    @Test
+    void testStaleEntryIsServedAndRefreshedInBackground() {
+        AggregatedPostsCache cache = createCache(0, 60_000);
+        AtomicInteger loads = new AtomicInteger();
+
+        cache.get(KEY, counting(loads)).join();
+        List<PostResponse> stale = cache.get(KEY, counting(loads)).join();
+        List<PostResponse> refreshed = cache.get(KEY, counting(loads)).join();
+
+        assertEquals(1L, stale.get(0).getId());
+        assertEquals(2L, refreshed.get(0).getId());
+        assertEquals(2, cache.staleHits());
+        assertEquals(2, cache.refreshes());
+    }
+
+    @Test
+    void testFailedRefreshKeepsStaleValue() {
+        AggregatedPostsCache cache = createCache(0, 60_000);
+
+        cache.get(KEY, () -> completedFuture(List.of(post(1)))).join();
+        List<PostResponse> stale = cache.get(KEY, () -> failedFuture(new IllegalStateException("upstream caído")))
+                .join();
+
+        assertEquals(1L, stale.get(0).getId());
+        assertEquals(1, cache.refreshFailures());
+    }
+}
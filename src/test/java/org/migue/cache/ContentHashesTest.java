@@ -0,0 +1,39 @@
+package org.migue.cache;
+
+import org.junit.jupiter.api.Test;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostResponse;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContentHashesTest {
+
+    private PostResponse post(String authorName, String body) {
+        PostResponse post = new PostResponse();
+        post.id = 1L;
+        post.title = "título";
+        post.body = body;
+        post.authorName = authorName;
+        post.authorEmail = "autor@example.com";
+        return post;
+    }
+
+    @Test
+    void nullFieldDoesNotCollideWithTheStringNull() {
+        assertNotEquals(ContentHashes.hash(post(null, "cuerpo")), ContentHashes.hash(post("null", "cuerpo")));
+        assertNotEquals(ContentHashes.hash(post(null, "cuerpo")), ContentHashes.hash(post("", "cuerpo")));
+    }
+
+    @Test
+    void fieldBoundariesAndMissingCommentsChangeTheHash() {
+        assertNotEquals(ContentHashes.hash(post("ab", "c")), ContentHashes.hash(post("a", "bc")));
+
+        PostResponse withoutComments = post("autor", "cuerpo");
+        PostResponse withEmptyComments = post("autor", "cuerpo");
+        withEmptyComments.comments = List.<CommentDto>of();
+        assertNotEquals(ContentHashes.hash(withoutComments), ContentHashes.hash(withEmptyComments));
+        assertEquals(ContentHashes.hash(post("autor", "cuerpo")), ContentHashes.hash(withoutComments));
+    }
+}
@@ -0,0 +1,89 @@
+package org.migue.cache;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostResponse;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostSnapshotStoreTest {
+
+    @TempDir
+    Path dir;
+
+    private PostSnapshotStore createStore() {
+        PostSnapshotStore store = new PostSnapshotStore();
+        store.enabled = true;
+        store.path = dir.resolve("posts-view.snapshot");
+        return store;
+    }
+
+    private MaterializedPostsView.Snapshot snapshot() {
+        PostDto post = new PostDto();
+        post.id = 7L;
+        post.userId = 3L;
+        post.title = "Título con acentos";
+        post.body = "cuerpo";
+
+        CommentDto comment = new CommentDto();
+        comment.id = 70L;
+        comment.postId = 7L;
+        comment.name = "comentario";
+        comment.email = null;
+        comment.body = "texto";
+
+        PostResponse response = new PostResponse();
+        response.id = 7L;
+        response.title = post.title;
+        response.body = post.body;
+        response.authorName = "Autor 3";
+        response.authorEmail = "autor3@example.com";
+        response.comments = List.of(comment);
+
+        return new MaterializedPostsView.Snapshot(List.of(post), Map.of(7L, response), Map.of(7L, 42), 5, 1_700_000_000_000L);
+    }
+
+    @Test
+    void savedSnapshotLoadsBackWithTheSameContent() {
+        PostSnapshotStore store = createStore();
+
+        store.save(snapshot());
+        MaterializedPostsView.Snapshot loaded = store.load().orElseThrow();
+
+        assertEquals(5, loaded.version());
+        assertEquals(1_700_000_000_000L, loaded.builtAtMillis());
+        assertEquals(3L, loaded.posts().get(0).userId);
+        assertEquals(42, loaded.hashes().get(7L));
+        PostResponse response = loaded.responses().get(7L);
+        assertEquals(7L, response.id);
+        assertEquals("Título con acentos", response.title);
+        assertEquals("Autor 3", response.authorName);
+        assertFalse(response.degraded);
+        assertEquals(1, response.comments.size());
+        assertNull(response.comments.get(0).email);
+        assertEquals("texto", response.comments.get(0).body);
+    }
+
+    @Test
+    void corruptedOrTruncatedFileIsDiscarded() throws IOException {
+        PostSnapshotStore store = createStore();
+        store.save(snapshot());
+        byte[] bytes = Files.readAllBytes(store.path);
+
+        bytes[bytes.length - 1] ^= 0x01;
+        Files.write(store.path, bytes);
+        assertTrue(store.load().isEmpty());
+
+        Files.write(store.path, Arrays.copyOf(bytes, PostSnapshotStore.HEADER_BYTES - 1));
+        assertTrue(store.load().isEmpty());
+    }
+}
@@ -0,0 +1,54 @@
+package org.migue.cache;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.migue.dto.PostResponse;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SerializedResponseCacheTest {
+
+    private SerializedResponseCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new SerializedResponseCache();
+        cache.objectMapper = new ObjectMapper();
+        cache.enabled = true;
+        cache.maxBytes = 1 << 20;
+        cache.minGzipBytes = 1024;
+        cache.init();
+    }
+
+    private PostResponse post(long id, String title) {
+        PostResponse post = new PostResponse();
+        post.id = id;
+        post.title = title;
+        return post;
+    }
+
+    @Test
+    void sameContentReusesTheSerializedBody() {
+        SerializedResponseCache.Variants first = cache.get("\"a\"", List.of(post(1, "uno")));
+        // Una proyección es otra instancia con el mismo contenido
+        SerializedResponseCache.Variants second = cache.get("\"a\"", List.of(post(1, "uno")));
+
+        assertSame(first, second);
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void etagCollisionNeverServesAnotherResultsBody() {
+        cache.get("\"a\"", List.of(post(1, "uno")));
+
+        SerializedResponseCache.Variants collided = cache.get("\"a\"", List.of(post(2, "dos")));
+
+        String body = new String(collided.identity(), StandardCharsets.UTF_8);
+        assertTrue(body.contains("\"dos\""), body);
+        assertFalse(body.contains("\"uno\""), body);
+    }
+}
@@ -0,0 +1,54 @@
+package org.migue.cache;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SingleFlightTest {
+
+    @Test
+    void concurrentCallsWithSameKeyShareOneExecution() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+        AtomicInteger calls = new AtomicInteger();
+        CompletableFuture<String> upstream = new CompletableFuture<>();
+
+        CompletableFuture<String> first = singleFlight.execute("q", () -> {
+            calls.incrementAndGet();
+            return upstream;
+        });
+        CompletableFuture<String> second = singleFlight.execute("q", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("otro");
+        });
+        CompletableFuture<String> other = singleFlight.execute("otra", () -> {
+            calls.incrementAndGet();
+            return CompletableFuture.completedFuture("otra");
+        });
+
+        second.cancel(false);
+        upstream.complete("resultado");
+
+        assertEquals("resultado", first.join());
+        assertEquals("otra", other.join());
+        assertEquals(2, calls.get());
+        assertEquals(1, singleFlight.coalesced());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void keyIsReleasedAfterFailure() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>();
+
+        CompletableFuture<String> failed = singleFlight.execute("q",
+                () -> CompletableFuture.failedFuture(new IllegalStateException("boom")));
+        assertThrows(CompletionException.class, failed::join);
+
+        CompletableFuture<String> retry = singleFlight.execute("q", () -> CompletableFuture.completedFuture("ok"));
+        assertEquals("ok", retry.join());
+        assertEquals(2, singleFlight.executions());
+    }
+}
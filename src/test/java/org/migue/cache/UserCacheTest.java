@@ -0,0 +1,105 @@
+package org.migue.cache;
+
+import org.junit.jupiter.api.Test;
+import org.migue.dto.UserDto;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static java.util.concurrent.CompletableFuture.failedFuture;
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserCacheTest {
+
+    private UserCache createCache() {
+        UserCache cache = new UserCache();
+        cache.ttlMs = 60_000;
+        cache.maxEntries = 100;
+        cache.init();
+        return cache;
+    }
+
+    private UserDto user(long id) {
+        UserDto user = new UserDto();
+        user.id = id;
+        user.name = "Autor " + id;
+        return user;
+    }
+
+    private Function<Long, CompletableFuture<UserDto>> counting(AtomicInteger loads) {
+        return id -> {
+            loads.incrementAndGet();
+            return completedFuture(user(id));
+        };
+    }
+
+    @Test
+    void testMissLoadsTheUser() {
+        UserCache cache = createCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        UserDto loaded = cache.get(1L, counting(loads)).join();
+
+        assertEquals("Autor 1", loaded.name);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.stats().missCount());
+    }
+
+    @Test
+    void testHitReturnsTheCachedUserWithoutLoading() {
+        UserCache cache = createCache();
+        AtomicInteger loads = new AtomicInteger();
+
+        UserDto first = cache.get(1L, counting(loads)).join();
+        UserDto second = cache.get(1L, counting(loads)).join();
+
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1, cache.stats().hitCount());
+    }
+
+    @Test
+    void testGetAllLoadsOnlyMissingUsersInOneBatch() {
+        UserCache cache = createCache();
+        UserDto cached = cache.get(1L, counting(new AtomicInteger())).join();
+        List<Set<Long>> batches = new ArrayList<>();
+
+        Map<Long, UserDto> users = cache.getAll(Set.of(1L, 2L, 3L), missing -> {
+            batches.add(missing);
+            Map<Long, UserDto> loaded = new HashMap<>();
+            missing.forEach(id -> loaded.put(id, user(id)));
+            return completedFuture(loaded);
+        }).join();
+
+        assertEquals(List.of(Set.of(2L, 3L)), batches);
+        assertEquals(Set.of(1L, 2L, 3L), users.keySet());
+        assertSame(cached, users.get(1L));
+        assertEquals(3, cache.size());
+        // Los usuarios cargados en lote quedan disponibles para búsquedas individuales
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("Autor 3", cache.get(3L, counting(loads)).join().name);
+        assertEquals(0, loads.get());
+    }
+
+    @Test
+    void testFailedLoadIsNotCached() {
+        UserCache cache = createCache();
+        CompletableFuture<UserDto> failed = cache.get(1L, id -> failedFuture(new IllegalStateException("caído")));
+
+        assertThrows(CompletionException.class, failed::join);
+        assertEquals(0, cache.size());
+
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("Autor 1", cache.get(1L, counting(loads)).join().name);
+        assertEquals(1, loads.get(), "Tras un fallo el usuario debe volver a cargarse");
+    }
+}
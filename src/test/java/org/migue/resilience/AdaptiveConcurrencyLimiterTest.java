@@ -0,0 +1,148 @@
+package org.migue.resilience;
+
+import jakarta.ws.rs.NotFoundException;
+import jakarta.ws.rs.ProcessingException;
+import jakarta.ws.rs.WebApplicationException;
+import org.junit.jupiter.api.Test;
+
+import java.net.ConnectException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    @Test
+    void queuesCallsAboveLimitAndDrainsOnCompletion() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 2, 1, 10, 10, 0.5, 100.0);
+        List<CompletableFuture<String>> upstream = new ArrayList<>();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            results.add(limiter.submit(() -> {
+                CompletableFuture<String> call = new CompletableFuture<>();
+                upstream.add(call);
+                return call;
+            }));
+        }
+
+        assertEquals(2, upstream.size());
+        assertEquals(2, limiter.inFlight());
+        assertEquals(1, limiter.queueDepth());
+
+        upstream.get(0).complete("a");
+
+        assertEquals("a", results.get(0).join());
+        assertEquals(3, upstream.size(), "La llamada en cola debe ejecutarse al liberar un hueco");
+        assertEquals(0, limiter.queueDepth());
+    }
+
+    @Test
+    void limitGrowsOnSuccessAndShrinksOnFailure() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 2, 10, 10, 0.5, 2.0, clock::get);
+        long normal = TimeUnit.MILLISECONDS.toNanos(10);
+
+        CompletableFuture<String> single = new CompletableFuture<>();
+        limiter.submit(() -> single);
+        clock.addAndGet(normal);
+        single.complete("ok");
+        assertEquals(4, limiter.limit(), "Sin uso real del límite no debe crecer");
+
+        List<CompletableFuture<String>> calls = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            calls.add(call);
+            limiter.submit(() -> call);
+        }
+        clock.addAndGet(normal);
+        calls.get(0).complete("ok");
+        calls.get(1).complete("ok");
+        assertEquals(6, limiter.limit(), "El límite debe crecer cuando se usa y las llamadas van bien");
+
+        clock.addAndGet(normal * 3);
+        calls.get(2).complete("lenta");
+        assertEquals(3, limiter.limit(), "Una latencia por encima de la tolerancia debe reducir el límite");
+
+        calls.get(3).completeExceptionally(new WebApplicationException(503));
+        assertEquals(2, limiter.limit(), "Un 5xx debe reducir el límite sin bajar del mínimo");
+    }
+
+    @Test
+    void clientErrorsDoNotShrinkTheLimit() {
+        AtomicLong clock = new AtomicLong();
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 2, 10, 10, 0.5, 2.0, clock::get);
+
+        for (int i = 0; i < 5; i++) {
+            CompletableFuture<String> call = new CompletableFuture<>();
+            limiter.submit(() -> call);
+            clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(10));
+            call.completeExceptionally(new NotFoundException());
+        }
+        assertEquals(4, limiter.limit(), "Los 404 no indican sobrecarga");
+
+        CompletableFuture<String> refused = new CompletableFuture<>();
+        limiter.submit(() -> refused);
+        refused.completeExceptionally(new ProcessingException(new ConnectException("Connection refused")));
+        assertEquals(2, limiter.limit(), "Un error de conexión sí indica sobrecarga");
+    }
+
+    @Test
+    void cancelledCallLeavesLimitUnchangedAndKeepsSlotUntilItFinishes() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 4, 2, 10, 10, 0.5, 100.0);
+
+        CompletableFuture<String> cancellable = new CompletableFuture<>();
+        limiter.submit(() -> cancellable).cancel(true);
+        assertTrue(cancellable.isCancelled(), "La cancelación debe llegar a la llamada");
+        assertEquals(4, limiter.limit());
+        assertEquals(0, limiter.inFlight());
+
+        // Una llamada bloqueante no se puede detener: su hueco sigue ocupado hasta que termina
+        CompletableFuture<String> blocking = new CompletableFuture<>() {
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                return false;
+            }
+        };
+        limiter.submit(() -> blocking).cancel(true);
+        assertEquals(1, limiter.inFlight());
+
+        blocking.completeExceptionally(new IllegalStateException("tarde"));
+        assertEquals(0, limiter.inFlight());
+        assertEquals(4, limiter.limit());
+    }
+
+    @Test
+    void cancelledQueuedCallLeavesTheQueue() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1, 0.5, 100.0);
+        limiter.submit(CompletableFuture::new);
+
+        limiter.submit(CompletableFuture::new).cancel(true);
+        assertEquals(0, limiter.queueDepth());
+
+        CompletableFuture<Object> queued = limiter.submit(CompletableFuture::new);
+        assertFalse(queued.isCompletedExceptionally(), "El hueco de la llamada cancelada debe quedar libre");
+        assertEquals(1, limiter.queueDepth());
+        assertEquals(0, limiter.rejected());
+    }
+
+    @Test
+    void rejectsWhenQueueIsFull() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter("test", 1, 1, 1, 1, 0.5, 100.0);
+
+        limiter.submit(CompletableFuture::new);
+        limiter.submit(CompletableFuture::new);
+        CompletableFuture<Object> rejected = limiter.submit(CompletableFuture::new);
+
+        ExecutionException ex = assertThrows(ExecutionException.class, rejected::get);
+        assertInstanceOf(RejectedExecutionException.class, ex.getCause());
+        assertEquals(1, limiter.rejected());
+    }
+}
@@ -0,0 +1,98 @@
+package org.migue.resilience;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RequestHedgerTest {
+
+    @Test
+    void noHedgeUntilEnoughSamples() {
+        RequestHedger hedger = new RequestHedger("test", 95, 100, 5, 1, new HedgeBudget(1.0, 10));
+
+        assertEquals(-1, hedger.hedgeDelayMs());
+        warmUp(hedger, 5);
+        assertTrue(hedger.hedgeDelayMs() >= 1);
+    }
+
+    @Test
+    void slowCallIsHedgedAndFasterCopyWins() throws InterruptedException {
+        RequestHedger hedger = new RequestHedger("test", 95, 100, 5, 1, new HedgeBudget(1.0, 10));
+        warmUp(hedger, 5);
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> straggler = new CompletableFuture<>();
+        CompletableFuture<String> result = hedger.hedge(() -> attempts.incrementAndGet() == 1
+                ? straggler
+                : CompletableFuture.completedFuture("hedge"));
+
+        assertEquals("hedge", result.orTimeout(2, TimeUnit.SECONDS).join());
+        assertEquals(2, attempts.get());
+        assertEquals(1, hedger.hedged());
+        // La victoria se cuenta justo después de completar el resultado
+        await(() -> hedger.hedgeWins() == 1);
+        assertEquals(1, hedger.hedgeWins());
+        assertTrue(straggler.isCancelled(), "La llamada perdedora debe cancelarse");
+    }
+
+    @Test
+    void abandonedOriginalStillSamplesItsLatency() throws InterruptedException {
+        RequestHedger hedger = new RequestHedger("test", 100, 5, 5, 1, new HedgeBudget(1.0, 100));
+        for (int i = 0; i < 5; i++) {
+            hedger.hedge(() -> CompletableFuture.supplyAsync(() -> "ok",
+                    CompletableFuture.delayedExecutor(30, TimeUnit.MILLISECONDS))).join();
+        }
+        long delay = hedger.hedgeDelayMs();
+        assertTrue(delay >= 30, "retardo inicial: " + delay);
+
+        // Los duplicados responden al instante y la llamada original nunca
+        for (int i = 0; i < 16; i++) {
+            AtomicInteger attempts = new AtomicInteger();
+            hedger.hedge(() -> attempts.incrementAndGet() == 1
+                    ? new CompletableFuture<String>()
+                    : CompletableFuture.completedFuture("hedge")).orTimeout(2, TimeUnit.SECONDS).join();
+        }
+
+        await(() -> hedger.hedgeWins() == 16);
+        assertEquals(16, hedger.hedgeWins());
+        assertTrue(hedger.hedgeDelayMs() >= delay, "el retardo no debe bajar por los duplicados: " + hedger.hedgeDelayMs());
+    }
+
+    @Test
+    void noHedgeWhenBudgetIsExhausted() throws Exception {
+        HedgeBudget budget = new HedgeBudget(0.0, 10);
+        RequestHedger hedger = new RequestHedger("test", 95, 100, 5, 1, budget);
+        warmUp(hedger, 5);
+
+        AtomicInteger attempts = new AtomicInteger();
+        CompletableFuture<String> slow = new CompletableFuture<>();
+        CompletableFuture<String> result = hedger.hedge(() -> {
+            attempts.incrementAndGet();
+            return slow;
+        });
+
+        Thread.sleep(100);
+        assertEquals(1, attempts.get());
+        assertEquals(1, budget.exhausted());
+
+        slow.complete("original");
+        assertEquals("original", result.join());
+    }
+
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(10);
+        }
+    }
+
+    private static void warmUp(RequestHedger hedger, int calls) {
+        for (int i = 0; i < calls; i++) {
+            hedger.hedge(() -> CompletableFuture.completedFuture("ok")).join();
+        }
+    }
+}
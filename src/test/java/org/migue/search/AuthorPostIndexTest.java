@@ -0,0 +1,55 @@
+package org.migue.search;
+
+import org.junit.jupiter.api.Test;
+import org.migue.dto.PostDto;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AuthorPostIndexTest {
+
+    private final AuthorPostIndex index = new AuthorPostIndex();
+
+    private List<PostDto> posts(int count, int authors) {
+        List<PostDto> posts = new ArrayList<>();
+        for (long id = 1; id <= count; id++) {
+            PostDto post = new PostDto();
+            post.id = id;
+            post.userId = (id % authors) + 1;
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    private List<Long> ids(List<PostDto> posts) {
+        return posts.stream().map(p -> p.id).collect(Collectors.toList());
+    }
+
+    @Test
+    void returnsAuthorPostsInListOrder() {
+        List<PostDto> posts = posts(20, 4);
+
+        assertEquals(List.of(1L, 5L, 9L, 13L, 17L), ids(index.postsByAuthor(posts, 2L)));
+        assertEquals(List.of(), index.postsByAuthor(posts, 99L));
+    }
+
+    @Test
+    void buildsOneIndexPerList() {
+        List<PostDto> posts = posts(10, 2);
+        assertEquals(5, index.postsByAuthor(posts, 1L).size());
+        assertEquals(5, index.postsByAuthor(posts, 2L).size());
+        assertEquals(1, index.builds(), "La misma lista debe reutilizar su índice");
+
+        List<PostDto> changed = posts(10, 2);
+        changed.get(0).userId = 7L;
+        changed.add(null);
+
+        assertEquals(List.of(1L), ids(index.postsByAuthor(changed, 7L)));
+        assertEquals(4, index.postsByAuthor(changed, 2L).size());
+        assertEquals(5, index.postsByAuthor(posts, 2L).size(), "La lista anterior conserva su índice");
+        assertEquals(2, index.builds());
+    }
+}
@@ -0,0 +1,68 @@
+package org.migue.search;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.migue.dto.PostDto;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PostSearchIndexTest {
+
+    private PostSearchIndex index;
+    private List<PostDto> posts;
+
+    @BeforeEach
+    void setUp() {
+        index = new PostSearchIndex();
+        posts = List.of(
+                post(1L, "Receta de tortilla", "Huevos y patatas"),
+                post(2L, "Viaje al norte", "Una receta de cocido en el camino"),
+                post(3L, "Canción", "La música del norte"));
+    }
+
+    private PostDto post(Long id, String title, String body) {
+        PostDto post = new PostDto();
+        post.id = id;
+        post.userId = 1L;
+        post.title = title;
+        post.body = body;
+        return post;
+    }
+
+    private List<Long> search(List<PostDto> posts, String query) {
+        return index.search(posts, query).stream().map(post -> post.id).collect(Collectors.toList());
+    }
+
+    @Test
+    void titleMatchesRankAboveBodyMatches() {
+        assertEquals(List.of(1L, 2L), search(posts, "receta"));
+    }
+
+    @Test
+    void matchesPrefixesIgnoringAccentsAndRequiresAllTerms() {
+        assertEquals(List.of(3L), search(posts, "CANCION mus"));
+        assertEquals(List.of(2L), search(posts, "norte coc"));
+        assertEquals(List.of(), search(posts, "norte tortilla"));
+        assertEquals(List.of(), search(posts, "!!!"));
+        assertEquals(1, index.builds(), "La misma lista debe reutilizar su índice");
+    }
+
+    @Test
+    void eachListKeepsItsOwnIndex() {
+        List<PostDto> changed = List.of(
+                post(1L, "Receta de tortilla", "Huevos y patatas"),
+                post(2L, "Viaje al sur", "Sin recetas"));
+
+        assertEquals(List.of(), search(changed, "norte"));
+        assertEquals(List.of(2L), search(changed, "sur"));
+        assertEquals(List.of(1L, 2L), search(changed, "rece"));
+        assertSame(changed.get(1), index.search(changed, "sur").get(0));
+
+        // La lista anterior sigue resolviéndose con su propio índice
+        assertEquals(List.of(2L, 3L), search(posts, "norte"));
+        assertEquals(2, index.builds());
+    }
+}
@@ -0,0 +1,127 @@
+package org.migue.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.PostSnapshotStore;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostResponse;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+
+class MaterializedViewRefresherTest {
+
+    private MaterializedViewRefresher refresher;
+    private UpstreamGateway gateway;
+    private PostService postService;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        gateway = Mockito.mock(UpstreamGateway.class);
+        postService = Mockito.mock(PostService.class);
+        // El enriquecimiento simulado copia id y título
+        Mockito.when(postService.enrichPosts(anyList())).thenAnswer(inv -> CompletableFuture.completedFuture(
+                inv.<List<PostDto>>getArgument(0).stream().map(post -> {
+                    PostResponse response = new PostResponse();
+                    response.id = post.id;
+                    response.title = post.title;
+                    return response;
+                }).collect(Collectors.toList())));
+
+        refresher = new MaterializedViewRefresher();
+        refresher.gateway = gateway;
+        refresher.postService = postService;
+        refresher.view = new MaterializedPostsView();
+        refresher.snapshotStore = new PostSnapshotStore();
+        refresher.enabled = true;
+        refresher.fullRefreshEvery = 10;
+    }
+
+    private PostDto post(Long id, String title) {
+        PostDto post = new PostDto();
+        post.id = id;
+        post.userId = 1L;
+        post.title = title;
+        post.body = "cuerpo";
+        return post;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refreshReEnrichesOnlyChangedPosts() {
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.completedFuture(
+                List.of(post(1L, "uno"), post(2L, "dos"), post(3L, "tres"))));
+        refresher.refresh().join();
+        MaterializedPostsView.Snapshot first = refresher.view.current();
+
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.completedFuture(
+                List.of(post(1L, "uno"), post(2L, "dos editado"), post(4L, "cuatro"))));
+        refresher.refresh().join();
+        MaterializedPostsView.Snapshot second = refresher.view.current();
+
+        ArgumentCaptor<List<PostDto>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(postService, Mockito.times(2)).enrichPosts(captor.capture());
+        assertEquals(List.of(2L, 4L), captor.getAllValues().get(1).stream().map(p -> p.id).collect(Collectors.toList()));
+
+        assertEquals(2, second.version());
+        assertSame(first.responses().get(1L), second.responses().get(1L));
+        assertEquals("dos editado", second.responses().get(2L).title);
+        assertFalse(second.responses().containsKey(3L));
+        assertEquals(3, first.posts().size(), "La snapshot anterior no debe modificarse");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void degradedResponsesAreRebuiltOnTheNextRefresh() {
+        Mockito.when(postService.enrichPosts(anyList())).thenAnswer(inv -> CompletableFuture.completedFuture(
+                inv.<List<PostDto>>getArgument(0).stream().map(post -> {
+                    PostResponse response = new PostResponse();
+                    response.id = post.id;
+                    response.title = post.title;
+                    // El post 2 se construye con el autor por defecto
+                    response.degraded = post.id == 2L;
+                    return response;
+                }).collect(Collectors.toList())));
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.completedFuture(
+                List.of(post(1L, "uno"), post(2L, "dos"))));
+
+        refresher.refresh().join();
+        refresher.refresh().join();
+
+        ArgumentCaptor<List<PostDto>> captor = ArgumentCaptor.forClass(List.class);
+        Mockito.verify(postService, Mockito.times(2)).enrichPosts(captor.capture());
+        assertEquals(List.of(2L), captor.getAllValues().get(1).stream().map(p -> p.id).collect(Collectors.toList()));
+    }
+
+    @Test
+    void synchronousFailureDoesNotBlockLaterRefreshes() {
+        Mockito.when(gateway.getPosts()).thenThrow(new IllegalStateException("caído"));
+        assertThrows(Exception.class, () -> refresher.refresh().join());
+
+        Mockito.reset(gateway);
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.completedFuture(List.of(post(1L, "uno"))));
+        refresher.refresh().join();
+
+        assertEquals(1, refresher.view.current().posts().size());
+    }
+
+    @Test
+    void failedRefreshKeepsPreviousSnapshot() {
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.completedFuture(List.of(post(1L, "uno"))));
+        refresher.refresh().join();
+        MaterializedPostsView.Snapshot first = refresher.view.current();
+
+        Mockito.when(gateway.getPosts()).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("caído")));
+        assertThrows(Exception.class, () -> refresher.refresh().join());
+
+        assertSame(first, refresher.view.current());
+    }
+}
@@ -0,0 +1,670 @@
+package org.migue.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.opentelemetry.api.OpenTelemetry;
+import io.opentelemetry.api.trace.Span;
+import io.opentelemetry.api.trace.SpanContext;
+import io.opentelemetry.api.trace.SpanKind;
+import io.opentelemetry.context.Scope;
+import io.opentelemetry.sdk.testing.exporter.InMemorySpanExporter;
+import io.opentelemetry.sdk.trace.SdkTracerProvider;
+import io.opentelemetry.sdk.trace.data.SpanData;
+import io.opentelemetry.sdk.trace.export.SimpleSpanProcessor;
+import io.smallrye.mutiny.Uni;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.migue.cache.AggregatedPostsCache;
+import org.migue.cache.MaterializedPostsView;
+import org.migue.cache.UserCache;
+import org.migue.client.CommentClient;
+import org.migue.client.PostClient;
+import org.migue.client.ReactiveCommentClient;
+import org.migue.client.ReactivePostClient;
+import org.migue.client.ReactiveUserClient;
+import org.migue.client.UserClient;
+import org.migue.dto.CommentDto;
+import org.migue.dto.PartialPosts;
+import org.migue.dto.PostCursor;
+import org.migue.dto.PostDto;
+import org.migue.dto.PostField;
+import org.migue.dto.PostPage;
+import org.migue.dto.PostQuery;
+import org.migue.dto.PostResponse;
+import org.migue.dto.UserDto;
+import org.migue.metrics.AggregationMetrics;
+import org.migue.resilience.Deadline;
+import org.migue.search.AuthorPostIndex;
+import org.migue.search.PostSearchIndex;
+import org.migue.tracing.AggregationTracing;
+import org.mockito.Mockito;
+
+import jakarta.ws.rs.BadRequestException;
+import jakarta.ws.rs.ClientErrorException;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.Response;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+class PostServiceTest {
+
+    private PostService postService;
+    private UpstreamGateway gateway;
+    private PostClient postClient;
+    private CommentClient commentClient;
+    private UserClient userClient;
+
+    @BeforeEach
+    void setUp() {
+        postClient = Mockito.mock(PostClient.class);
+        commentClient = Mockito.mock(CommentClient.class);
+        userClient = Mockito.mock(UserClient.class);
+
+        // Cachés transparentes: siempre delegan en el cargador
+        UserCache userCache = Mockito.mock(UserCache.class);
+        Mockito.when(userCache.get(any(), any()))
+                .thenAnswer(inv -> inv.<Function<Long, ?>>getArgument(1).apply(inv.getArgument(0)));
+        Mockito.when(userCache.getAll(any(), any()))
+                .thenAnswer(inv -> inv.<Function<Set<Long>, ?>>getArgument(1).apply(inv.getArgument(0)));
+        AggregatedPostsCache postsCache = Mockito.mock(AggregatedPostsCache.class);
+        Mockito.when(postsCache.get(any(), any()))
+                .thenAnswer(inv -> inv.<Supplier<?>>getArgument(1).get());
+
+        gateway = new UpstreamGateway();
+        gateway.postClient = postClient;
+        gateway.commentClient = commentClient;
+        gateway.userClient = userClient;
+        gateway.executor = Executors.newFixedThreadPool(8);
+        gateway.mode = AggregationMode.WORKER;
+        gateway.externalTimeoutMs = 5_000;
+        gateway.metrics = new AggregationMetrics(new SimpleMeterRegistry());
+        gateway.tracing = new AggregationTracing(OpenTelemetry.noop().getTracer("test"));
+
+        postService = new PostService();
+        postService.postClient = postClient;
+        postService.gateway = gateway;
+        postService.executor = gateway.executor;
+        postService.userCache = userCache;
+        postService.postsCache = postsCache;
+        postService.postsView = new MaterializedPostsView();
+        postService.metrics = gateway.metrics;
+        postService.tracing = gateway.tracing;
+        postService.searchIndex = new PostSearchIndex();
+        postService.authorIndex = new AuthorPostIndex();
+        postService.externalTimeoutMs = 5_000;
+        postService.maxPostsLimit = 100;
+        postService.bulkCommentsEnabled = false;
+        postService.bulkMaxFilterIds = 50;
+        postService.batchUsersEnabled = false;
+        postService.userBatchSize = 2;
+        postService.streamMaxConcurrency = 16;
+        postService.pipelinedEnrichment = true;
+    }
+
+    // Datos de prueba: 20 posts repartidos entre 4 autores
+    private List<PostDto> createPosts() {
+        List<PostDto> posts = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            PostDto post = new PostDto();
+            post.id = id;
+            post.userId = (id % 4) + 1;
+            post.title = id % 5 == 0 ? "Titulo Especial " + id : "titulo " + id;
+            post.body = "cuerpo " + id;
+            posts.add(post);
+        }
+        return posts;
+    }
+
+    private CommentDto createComment(Long id, Long postId) {
+        CommentDto comment = new CommentDto();
+        comment.id = id;
+        comment.postId = postId;
+        comment.body = "comentario " + id;
+        return comment;
+    }
+
+    private UserDto createUser(Long id) {
+        UserDto user = new UserDto();
+        user.id = id;
+        user.name = "Autor " + id;
+        user.email = "autor" + id + "@test.com";
+        return user;
+    }
+
+    @Test
+    void testSelectPage_FiltersBeforePaging() {
+        PostQuery query = new PostQuery(2L, null, 2, 1);
+
+        List<PostDto> page = postService.selectPage(createPosts(), query);
+
+        // Autor 2 tiene los posts 1, 5, 9, 13, 17 -> offset 1, limit 2
+        assertEquals(List.of(5L, 9L), page.stream().map(p -> p.id).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testSelectPage_SearchIsCaseInsensitive() {
+        List<PostDto> page = postService.selectPage(createPosts(), new PostQuery(null, "especial", 100, 0));
+
+        assertEquals(List.of(5L, 10L, 15L, 20L), page.stream().map(p -> p.id).collect(Collectors.toList()));
+    }
+
+    @Test
+    void testGetPosts_OnlyEnrichesRequestedPage() {
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 3, 10));
+
+        assertEquals(List.of(11L, 12L, 13L), responses.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertEquals("Autor 4", responses.get(0).getAuthorName());
+        Mockito.verify(commentClient, Mockito.times(3)).getComments(anyLong());
+    }
+
+    @Test
+    void testGetPosts_SparseFieldsSkipCommentAndUserCalls() {
+        postService.bulkCommentsEnabled = true;
+        postService.batchUsersEnabled = true;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+
+        PostQuery query = new PostQuery(null, null, 3, 0, EnumSet.of(PostField.ID, PostField.TITLE));
+        List<PostResponse> responses = postService.getPosts(query);
+
+        assertEquals(3, responses.size());
+        assertEquals("titulo 1", responses.get(0).getTitle());
+        assertNull(responses.get(0).getBody());
+        assertNull(responses.get(0).getAuthorName());
+        assertNull(responses.get(0).getComments());
+        Mockito.verifyNoInteractions(commentClient, userClient);
+    }
+
+    @Test
+    void testGetPosts_ServedFromMaterializedViewWithoutUpstreamCalls() {
+        List<PostDto> posts = createPosts();
+        Map<Long, PostResponse> responses = new HashMap<>();
+        Map<Long, Integer> hashes = new HashMap<>();
+        for (PostDto post : posts) {
+            PostResponse response = new PostResponse();
+            response.id = post.id;
+            responses.put(post.id, response);
+            hashes.put(post.id, 0);
+        }
+        postService.postsView.publish(new MaterializedPostsView.Snapshot(posts, responses, hashes, 1, 0));
+
+        List<PostResponse> page = postService.getPosts(new PostQuery(2L, null, 2, 1));
+
+        assertEquals(List.of(5L, 9L), page.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        Mockito.verifyNoInteractions(postClient, commentClient, userClient);
+    }
+
+    @Test
+    void testGetPostsPage_CursorKeepsPagingItsSnapshotAfterANewVersion() {
+        List<PostDto> posts = createPosts();
+        postService.postsView.publish(snapshotOf(posts, 1));
+        PostQuery query = new PostQuery(2L, null, 2, 0);
+
+        PostPage first = postService.getPostsPageAsync(query, null).join();
+        assertEquals(List.of(1L, 5L), first.posts().stream().map(PostResponse::getId).collect(Collectors.toList()));
+
+        // La nueva versión añade un post al principio y quita uno ya entregado
+        List<PostDto> changed = new ArrayList<>(posts);
+        changed.remove(0);
+        PostDto added = new PostDto();
+        added.id = 21L;
+        added.userId = 2L;
+        changed.add(0, added);
+        postService.postsView.publish(snapshotOf(changed, 2));
+
+        PostPage second = postService.getPostsPageAsync(query, PostCursor.decode(first.nextCursor())).join();
+        PostPage third = postService.getPostsPageAsync(query, PostCursor.decode(second.nextCursor())).join();
+
+        assertEquals(List.of(9L, 13L), second.posts().stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertEquals(List.of(17L), third.posts().stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertNull(third.nextCursor());
+
+        PostCursor expired = PostCursor.of(99, 1L, query.normalized(100));
+        Throwable failure = assertThrows(Exception.class,
+                () -> postService.getPostsPageAsync(query, expired).join()).getCause();
+        assertEquals(Response.Status.GONE.getStatusCode(),
+                ((ClientErrorException) failure).getResponse().getStatus());
+        Mockito.verifyNoInteractions(postClient, commentClient, userClient);
+    }
+
+    @Test
+    void testGetPostsPage_CursorOnlyContinuesItsExactFilters() {
+        postService.postsView.publish(snapshotOf(createPosts(), 1));
+        PostQuery query = new PostQuery(2L, "Qui", 2, 0);
+        PostCursor cursor = PostCursor.decode(PostCursor.of(1, 5L, query.normalized(100)).encode());
+
+        assertEquals(new PostCursor(1, 5L, 2L, "qui"), cursor);
+        for (PostQuery other : List.of(new PostQuery(3L, "qui", 2, 0), new PostQuery(2L, "quis", 2, 0),
+                new PostQuery(2L, null, 2, 0), new PostQuery(null, "qui", 2, 0))) {
+            Throwable failure = assertThrows(Exception.class,
+                    () -> postService.getPostsPageAsync(other, cursor).join()).getCause();
+            assertInstanceOf(BadRequestException.class, failure);
+        }
+    }
+
+    private static MaterializedPostsView.Snapshot snapshotOf(List<PostDto> posts, long version) {
+        Map<Long, PostResponse> responses = new HashMap<>();
+        Map<Long, Integer> hashes = new HashMap<>();
+        for (PostDto post : posts) {
+            PostResponse response = new PostResponse();
+            response.id = post.id;
+            responses.put(post.id, response);
+            hashes.put(post.id, 0);
+        }
+        return new MaterializedPostsView.Snapshot(posts, responses, hashes, version, 0);
+    }
+
+    @Test
+    void testGetPosts_ConditionalUpstreamRequestReusesListOnNotModified() {
+        gateway.conditionalRequests = true;
+        List<PostDto> posts = createPosts();
+        Mockito.when(postClient.getPostsIfNoneMatch(null))
+                .thenReturn(Response.ok(posts).header(HttpHeaders.ETAG, "\"v1\"").build());
+        Mockito.when(postClient.getPostsIfNoneMatch("\"v1\""))
+                .thenReturn(Response.notModified().build());
+
+        List<PostDto> first = gateway.getPosts().join();
+        List<PostDto> second = gateway.getPosts().join();
+
+        assertEquals(20, first.size());
+        assertSame(first, second);
+        Mockito.verify(postClient).getPostsIfNoneMatch("\"v1\"");
+    }
+
+    @Test
+    void testGetPosts_BulkCommentsUseSingleCall() {
+        postService.bulkCommentsEnabled = true;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getCommentsByPostIds(any())).thenReturn(List.of(
+                createComment(1L, 1L), createComment(2L, 1L), createComment(3L, 2L), createComment(4L, 7L)));
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 3, 0));
+
+        assertEquals(2, responses.get(0).getComments().size());
+        assertEquals(1, responses.get(1).getComments().size());
+        assertTrue(responses.get(2).getComments().isEmpty());
+        Mockito.verify(commentClient).getCommentsByPostIds(List.of(1L, 2L, 3L));
+        Mockito.verify(commentClient, Mockito.never()).getComments(anyLong());
+    }
+
+    @Test
+    void testGetPosts_BulkCommentsFallBackToPerPostCalls() {
+        postService.bulkCommentsEnabled = true;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getCommentsByPostIds(any())).thenThrow(new RuntimeException("bulk caído"));
+        Mockito.when(commentClient.getComments(anyLong()))
+                .thenAnswer(inv -> List.of(createComment(100L, inv.getArgument(0))));
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 2, 0));
+
+        assertEquals(1, responses.get(0).getComments().size());
+        Mockito.verify(commentClient, Mockito.times(2)).getComments(anyLong());
+    }
+
+    @Test
+    void testGetPosts_RecordsUpstreamLatencyAndFallbacks() throws InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        gateway.metrics = new AggregationMetrics(registry);
+        postService.metrics = gateway.metrics;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenThrow(new RuntimeException("comments caído"));
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        postService.getPosts(new PostQuery(null, null, 3, 0));
+
+        await(() -> registry.find("upstream.client.requests").tags("client", "comments").timers().stream()
+                .mapToLong(Timer::count).sum() >= 3);
+        assertEquals(1, registry.get("upstream.client.requests").tags("client", "posts", "outcome", "success").timer().count());
+        assertEquals(3, registry.get("upstream.client.requests").tags("client", "comments", "outcome", "error").timer().count());
+        assertEquals(3.0, registry.get("posts.aggregation.fallbacks").tag("type", AggregationMetrics.EMPTY_COMMENTS).counter().count());
+        assertEquals(3.0, registry.get("posts.aggregation.fanout").tag("downstream", "comments").summary().totalAmount());
+        assertEquals(1, registry.get("posts.aggregation").timer().count());
+    }
+
+    @Test
+    void testGetPosts_TracesEachUpstreamCallUnderTheAggregation() throws InterruptedException {
+        InMemorySpanExporter exporter = InMemorySpanExporter.create();
+        SdkTracerProvider tracerProvider = SdkTracerProvider.builder()
+                .addSpanProcessor(SimpleSpanProcessor.create(exporter))
+                .build();
+        gateway.tracing = new AggregationTracing(tracerProvider.get("test"));
+        gateway.executor = gateway.tracing.propagating(gateway.executor);
+        postService.tracing = gateway.tracing;
+
+        AtomicReference<SpanContext> insidePostsCall = new AtomicReference<>();
+        Mockito.when(postClient.getPosts()).thenAnswer(inv -> {
+            insidePostsCall.set(Span.current().getSpanContext());
+            return createPosts();
+        });
+        Mockito.when(commentClient.getComments(anyLong())).thenThrow(new RuntimeException("comments caído"));
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        Span request = tracerProvider.get("test").spanBuilder("GET /posts").startSpan();
+        try (Scope ignored = request.makeCurrent()) {
+            postService.getPosts(new PostQuery(null, null, 3, 0));
+        } finally {
+            request.end();
+        }
+
+        // posts, 3 comentarios, 3 autores, la agregación y la petición
+        await(() -> exporter.getFinishedSpanItems().size() >= 9);
+        List<SpanData> spans = exporter.getFinishedSpanItems();
+        SpanData aggregate = spans.stream().filter(span -> span.getName().equals("posts.aggregate")).findFirst().orElseThrow();
+        assertEquals(request.getSpanContext().getSpanId(), aggregate.getParentSpanId());
+        assertEquals(3, aggregate.getEvents().stream()
+                .filter(event -> AggregationMetrics.EMPTY_COMMENTS.equals(event.getAttributes().get(AggregationTracing.FALLBACK)))
+                .count());
+
+        List<SpanData> upstream = spans.stream().filter(span -> span.getKind() == SpanKind.CLIENT).collect(Collectors.toList());
+        assertEquals(7, upstream.size());
+        assertTrue(upstream.stream().allMatch(span -> span.getParentSpanId().equals(aggregate.getSpanId())));
+
+        SpanData posts = upstream.stream().filter(span -> span.getName().equals("posts getPosts")).findFirst().orElseThrow();
+        assertEquals(posts.getSpanContext(), insidePostsCall.get());
+        assertEquals(Set.of(1L, 2L, 3L), upstream.stream()
+                .filter(span -> span.getName().equals("comments getComments"))
+                .peek(span -> assertEquals("error", span.getAttributes().get(AggregationTracing.OUTCOME)))
+                .map(span -> span.getAttributes().get(AggregationTracing.POST_ID))
+                .collect(Collectors.toSet()));
+        assertTrue(upstream.stream()
+                .filter(span -> span.getName().equals("users getUser"))
+                .allMatch(span -> "success".equals(span.getAttributes().get(AggregationTracing.OUTCOME))));
+    }
+
+    // Métricas y spans de cada llamada se cierran en callbacks que pueden terminar justo después de la respuesta
+    private static void await(BooleanSupplier condition) throws InterruptedException {
+        for (int attempt = 0; attempt < 100 && !condition.getAsBoolean(); attempt++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    void testGetPosts_DeadlineReturnsCompletedPostsAndCancelsTheRest() throws InterruptedException {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        gateway.metrics = new AggregationMetrics(registry);
+        postService.metrics = gateway.metrics;
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenAnswer(inv -> {
+            if (inv.<Long>getArgument(0) == 3L) {
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    interrupted.set(true);
+                    throw ex;
+                }
+            }
+            return Collections.<CommentDto>emptyList();
+        });
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        Deadline deadline = Deadline.after(300);
+        List<PostResponse> responses;
+        try (Scope ignored = deadline.makeCurrent()) {
+            responses = postService.getPostsAsync(new PostQuery(null, null, 3, 0)).join();
+        } finally {
+            release.countDown();
+        }
+
+        assertTrue(PartialPosts.isPartial(responses));
+        assertTrue(deadline.isExpired());
+        assertEquals(List.of(1L, 2L), responses.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertEquals(1.0, registry.get("posts.aggregation.fallbacks").tag("type", AggregationMetrics.PARTIAL).counter().count());
+        // La llamada bloqueante que seguía en curso se interrumpe al vencer el plazo
+        await(() -> registry.find("upstream.client.requests").tags("client", "comments", "outcome", "error").timer() != null);
+        await(interrupted::get);
+        assertTrue(interrupted.get());
+    }
+
+    @Test
+    void testGetPosts_CoalescedRequestKeepsItsOwnDeadline() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenAnswer(inv -> {
+            if (inv.<Long>getArgument(0) == 3L) {
+                release.await();
+            }
+            return Collections.<CommentDto>emptyList();
+        });
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+        PostQuery query = new PostQuery(null, null, 3, 0);
+
+        CompletableFuture<List<PostResponse>> shortBudget;
+        CompletableFuture<List<PostResponse>> longBudget;
+        try (Scope ignored = Deadline.after(200).makeCurrent()) {
+            shortBudget = postService.getPostsAsync(query);
+        }
+        try (Scope ignored = Deadline.after(5000).makeCurrent()) {
+            longBudget = postService.getPostsAsync(query);
+        }
+        List<PostResponse> partial;
+        try {
+            partial = shortBudget.join();
+            // El plazo vencido de la primera petición no cancela las llamadas que espera la segunda
+            assertFalse(longBudget.isDone());
+        } finally {
+            release.countDown();
+        }
+        List<PostResponse> complete = longBudget.join();
+
+        assertTrue(PartialPosts.isPartial(partial));
+        assertEquals(List.of(1L, 2L), partial.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertFalse(PartialPosts.isPartial(complete));
+        assertEquals(List.of(1L, 2L, 3L), complete.stream().map(PostResponse::getId).collect(Collectors.toList()));
+        assertFalse(complete.get(2).degraded);
+        Mockito.verify(postClient, Mockito.times(1)).getPosts();
+        assertEquals(1, postService.inFlightQueries().coalesced());
+    }
+
+    @Test
+    void testGetPosts_BatchesDistinctAuthors() {
+        postService.batchUsersEnabled = true;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(userClient.getUsers(any())).thenAnswer(inv -> inv.<List<Long>>getArgument(0).stream()
+                .map(this::createUser)
+                .collect(Collectors.toList()));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 8, 0));
+
+        assertEquals(8, responses.size());
+        assertEquals("Autor 2", responses.get(0).getAuthorName());
+        // 4 autores distintos en bloques de 2 ids
+        Mockito.verify(userClient, Mockito.times(2)).getUsers(any());
+        Mockito.verify(userClient, Mockito.never()).getUser(anyLong());
+    }
+
+    @Test
+    void testGetPosts_FailedUserBatchFallsBackToSingleLookups() {
+        postService.batchUsersEnabled = true;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenReturn(Collections.emptyList());
+        Mockito.when(userClient.getUsers(any())).thenThrow(new RuntimeException("lote caído"));
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 2, 0));
+
+        assertEquals("Autor 2", responses.get(0).getAuthorName());
+        assertEquals("Autor 3", responses.get(1).getAuthorName());
+    }
+
+    @Test
+    void testGetPostsAsync_ReactiveModeUsesMutinyClients() {
+        ReactivePostClient reactivePostClient = Mockito.mock(ReactivePostClient.class);
+        ReactiveCommentClient reactiveCommentClient = Mockito.mock(ReactiveCommentClient.class);
+        ReactiveUserClient reactiveUserClient = Mockito.mock(ReactiveUserClient.class);
+        gateway.reactivePostClient = reactivePostClient;
+        gateway.reactiveCommentClient = reactiveCommentClient;
+        gateway.reactiveUserClient = reactiveUserClient;
+        gateway.mode = AggregationMode.REACTIVE;
+
+        Mockito.when(reactivePostClient.getPosts()).thenReturn(Uni.createFrom().item(createPosts()));
+        Mockito.when(reactiveCommentClient.getComments(anyLong()))
+                .thenAnswer(inv -> Uni.createFrom().item(List.of(createComment(1L, inv.getArgument(0)))));
+        Mockito.when(reactiveUserClient.getUser(anyLong()))
+                .thenAnswer(inv -> Uni.createFrom().item(createUser(inv.getArgument(0))));
+
+        List<PostResponse> responses = postService.getPostsAsync(new PostQuery(null, null, 2, 0)).join();
+
+        assertEquals(2, responses.size());
+        assertEquals("Autor 2", responses.get(0).getAuthorName());
+        assertEquals(1, responses.get(1).getComments().size());
+        Mockito.verifyNoInteractions(postClient, commentClient, userClient);
+    }
+
+    @Test
+    void testGetPosts_VirtualThreadsRespectDownstreamConcurrency() {
+        gateway.mode = AggregationMode.VIRTUAL_THREADS;
+        gateway.maxConcurrentPostCalls = 1;
+        gateway.maxConcurrentCommentCalls = 2;
+        gateway.maxConcurrentUserCalls = 2;
+        gateway.init();
+
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenAnswer(inv -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Collections.emptyList();
+        });
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 10, 0));
+
+        assertEquals(10, responses.size());
+        assertTrue(maxInFlight.get() <= 2, "máximo en vuelo: " + maxInFlight.get());
+        gateway.shutdown();
+    }
+
+    @Test
+    void testStreamPosts_EmitsEachPostAsSoonAsItIsReady() {
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenAnswer(inv -> {
+            // El primer post es el más lento
+            if (inv.<Long>getArgument(0) == 1L) {
+                Thread.sleep(200);
+            }
+            return Collections.emptyList();
+        });
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> createUser(inv.getArgument(0)));
+
+        List<PostResponse> streamed = postService.streamPosts(new PostQuery(null, null, 3, 0))
+                .collect().asList()
+                .await().atMost(java.time.Duration.ofSeconds(5));
+
+        assertEquals(3, streamed.size());
+        assertEquals(1L, streamed.get(2).getId());
+    }
+
+    @Test
+    void testGetPosts_TwoPhaseEnrichmentLoadsAuthorsAfterComments() {
+        postService.pipelinedEnrichment = false;
+        postService.bulkCommentsEnabled = true;
+        postService.batchUsersEnabled = true;
+        postService.userBatchSize = 25;
+        AtomicBoolean commentsLoaded = new AtomicBoolean();
+        AtomicBoolean usersWaited = new AtomicBoolean();
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getCommentsByPostIds(any())).thenAnswer(inv -> {
+            Thread.sleep(50);
+            commentsLoaded.set(true);
+            return List.of();
+        });
+        Mockito.when(userClient.getUsers(any())).thenAnswer(inv -> {
+            usersWaited.set(commentsLoaded.get());
+            return inv.<List<Long>>getArgument(0).stream().map(this::createUser).collect(Collectors.toList());
+        });
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 3, 0));
+
+        assertEquals(3, responses.size());
+        assertEquals("Autor 2", responses.get(0).getAuthorName());
+        assertTrue(usersWaited.get(), "sin pipeline los autores se piden cuando llegan los comentarios");
+    }
+
+    @Test
+    void testStreamPosts_BulkLoadsArePerWindow() {
+        postService.bulkCommentsEnabled = true;
+        postService.batchUsersEnabled = true;
+        postService.userBatchSize = 25;
+        postService.streamMaxConcurrency = 2;
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getCommentsByPostIds(any())).thenAnswer(inv -> inv.<List<Long>>getArgument(0).stream()
+                .map(postId -> createComment(postId * 10, postId))
+                .collect(Collectors.toList()));
+        Mockito.when(userClient.getUsers(any())).thenAnswer(inv -> inv.<List<Long>>getArgument(0).stream()
+                .map(this::createUser)
+                .collect(Collectors.toList()));
+
+        List<PostResponse> streamed = postService.streamPosts(new PostQuery(null, null, 6, 0))
+                .collect().asList()
+                .await().atMost(java.time.Duration.ofSeconds(5));
+
+        assertEquals(6, streamed.size());
+        // Una carga masiva por cada ventana de app.stream.max-concurrency posts
+        Mockito.verify(commentClient).getCommentsByPostIds(List.of(1L, 2L));
+        Mockito.verify(commentClient).getCommentsByPostIds(List.of(3L, 4L));
+        Mockito.verify(commentClient).getCommentsByPostIds(List.of(5L, 6L));
+        Mockito.verify(commentClient, Mockito.times(3)).getCommentsByPostIds(any());
+        Mockito.verify(userClient, Mockito.times(3)).getUsers(any());
+        assertTrue(streamed.stream().allMatch(post -> post.getComments().size() == 1));
+    }
+
+    /**
+     * Los comentarios no responden hasta que ha empezado la carga de algún autor: si las
+     * dos fases fueran secuenciales, ningún comentario vería un autor en curso.
+     */
+    @Test
+    void testGetPosts_CommentsAndAuthorsArePipelined() {
+        CountDownLatch userLoadStarted = new CountDownLatch(1);
+        AtomicInteger commentsBeforeAnyUser = new AtomicInteger();
+        Mockito.when(postClient.getPosts()).thenReturn(createPosts());
+        Mockito.when(commentClient.getComments(anyLong())).thenAnswer(inv -> {
+            if (!userLoadStarted.await(2, TimeUnit.SECONDS)) {
+                commentsBeforeAnyUser.incrementAndGet();
+            }
+            return Collections.emptyList();
+        });
+        Mockito.when(userClient.getUser(anyLong())).thenAnswer(inv -> {
+            userLoadStarted.countDown();
+            return createUser(inv.getArgument(0));
+        });
+
+        List<PostResponse> responses = postService.getPosts(new PostQuery(null, null, 3, 0));
+
+        assertEquals(3, responses.size());
+        assertEquals("Autor 2", responses.get(0).getAuthorName());
+        assertEquals(0, commentsBeforeAnyUser.get(),
+                "la carga de autores debe empezar antes de que lleguen los comentarios");
+    }
+}